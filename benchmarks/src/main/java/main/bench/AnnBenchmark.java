@@ -0,0 +1,74 @@
+package main.bench;
+
+import main.Dataset;
+import main.math.Statistics;
+import main.neighbors.KNN;
+import main.util.DataUtil;
+
+
+import static main.Main.breastCancerData;
+import static main.Main.carData;
+import static main.Main.ecoliData;
+import static main.Main.letterRecognitionData;
+import static main.Main.mushroomData;
+
+/**
+ * Reports the recall@k (the fraction of the exact k nearest neighbours that are found), accuracy and query time of
+ * approximate KNN through locality sensitive hashing against exact KNN, training on 4/5 of each dataset and
+ * querying with the held out fold (see Folds).
+ */
+public class AnnBenchmark {
+
+    private static final int K = 5;
+    private static final int[][] HASH_SETTINGS = { { 4, 4 }, { 8, 4 }, { 16, 4 }, { 8, 8 }, { 16, 8 }, { 32, 8 } };
+    private static final double[] WIDTHS = { 0.2, 0.4 };
+
+    public static void main(String[] args) throws Exception {
+        for (String fileName : new String[] { letterRecognitionData, ecoliData, mushroomData, carData, breastCancerData }) {
+            Dataset dataset = DataUtil.parseFile(fileName);
+            dataset.setName(fileName);
+            Folds.Fold fold = Folds.holdOut(dataset);
+            Dataset test = fold.test;
+            System.out.println(dataset + ", " + test.getNumberOfExamples() + " queries, k = " + K);
+
+            KNN exact = new KNN(K);
+            exact.train(fold.train);
+            int[][] exactNeighbors = new int[test.getNumberOfExamples()][];
+            double[] example = new double[test.getNumAttributes()];
+            for (int i = 0; i < exactNeighbors.length; i++) {
+                exactNeighbors[i] = exact.getNearestNeighbors(test.getExample(i, example));
+            }
+            report(exact, fold, exactNeighbors);
+
+            boolean continuous = dataset.getType() == Dataset.CONTINUOUS;
+            for (double width : continuous ? WIDTHS : new double[] { 0 }) {
+                for (int[] setting : HASH_SETTINGS) {
+                    report(new KNN(K, setting[0], setting[1], width), fold, exactNeighbors);
+                }
+            }
+            System.out.println();
+        }
+    }
+
+    private static void report(KNN knn, Folds.Fold fold, int[][] exactNeighbors) {
+        knn.setSeed(Folds.SEED);
+        knn.train(fold.train);
+        long start = System.nanoTime();
+        int[] predictions = knn.classifyAll(fold.test);
+        double queryTime = (System.nanoTime() - start) / 1e6;
+
+        double found = 0;
+        double[] example = new double[fold.test.getNumAttributes()];
+        for (int i = 0; i < exactNeighbors.length; i++) {
+            int[] neighbors = knn.getNearestNeighbors(fold.test.getExample(i, example));
+            for (int neighbor : neighbors) {
+                for (int exactNeighbor : exactNeighbors[i]) {
+                    if (neighbor == exactNeighbor) found++;
+                }
+            }
+        }
+        double recall = found / (exactNeighbors.length * (double) K);
+        System.out.printf("%-70s recall@%d: %6.2f%%   accuracy: %6.2f%%   queries: %9.2f ms%n",
+                knn, K, 100 * recall, 100 * Statistics.computeAccuracy(fold.classValues, predictions), queryTime);
+    }
+}
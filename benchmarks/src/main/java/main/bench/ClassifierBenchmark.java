@@ -0,0 +1,74 @@
+package main.bench;
+
+import main.Classifier;
+import main.Dataset;
+import main.bayes.NaiveBayes;
+import main.ensemble.AdaBoost;
+import main.ensemble.RandomForest;
+import main.neighbors.KNN;
+import main.trees.ID3;
+import main.util.DataUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static main.Main.*;
+
+/**
+ * Times training each classifier on 4/5 of a bundled dataset, and classifying the held out fold (see Folds) with
+ * classifyAll(). The examples are split the same way for every classifier.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassifierBenchmark {
+
+    @Param({ carData, mushroomData, ecoliData, breastCancerData, letterRecognitionData })
+    public String fileName;
+
+    @Param({ "ID3", "AdaBoost", "RandomForest", "NaiveBayes", "KNN" })
+    public String algorithm;
+
+    private Dataset train;
+    private Dataset test;
+    private Classifier trained;     // trained once for the classify benchmark
+
+    @Setup
+    public void setUp() throws IOException {
+        Folds.Fold fold = Folds.holdOut(DataUtil.parseFile(fileName));
+        train = fold.train;
+        test = fold.test;
+        trained = createClassifier();
+        trained.train(train);
+    }
+
+    private Classifier createClassifier() {
+        Classifier classifier;
+        switch (algorithm) {
+            case "ID3":             classifier = new ID3(); break;
+            case "AdaBoost":        classifier = new AdaBoost(new ID3(1), 50, 0.8); break;
+            case "RandomForest":    classifier = new RandomForest(new ID3(Integer.MAX_VALUE, 4, 1), 0.6, 50); break;
+            case "NaiveBayes":      classifier = new NaiveBayes(); break;
+            case "KNN":             classifier = new KNN(3); break;
+            default: throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
+        }
+        classifier.setSeed(Folds.SEED);
+        return classifier;
+    }
+
+    @Benchmark
+    public Classifier train() {
+        Classifier classifier = createClassifier();
+        classifier.train(train);
+        return classifier;
+    }
+
+    @Benchmark
+    public int[] classify() {
+        return trained.classifyAll(test);
+    }
+}
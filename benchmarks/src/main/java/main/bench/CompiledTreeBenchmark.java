@@ -0,0 +1,67 @@
+package main.bench;
+
+import main.Dataset;
+import main.trees.CompiledTree;
+import main.trees.ID3;
+import main.util.DataUtil;
+
+import java.util.Arrays;
+
+import static main.Main.breastCancerData;
+import static main.Main.carData;
+import static main.Main.ecoliData;
+import static main.Main.letterRecognitionData;
+import static main.Main.mushroomData;
+
+/**
+ * Compares the prediction throughput of a trained ID3 tree as TreeNode objects and as a CompiledTree, both one
+ * encoded example at a time and in batches over the dataset's columns, and checks that they agree.
+ */
+public class CompiledTreeBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 20;
+    private static final int ITERATIONS = 50;
+
+    public static void main(String[] args) throws Exception {
+        for (String fileName : new String[] { carData, mushroomData, letterRecognitionData, ecoliData, breastCancerData }) {
+            Dataset dataset = DataUtil.parseFile(fileName);
+            dataset.setName(fileName);
+            ID3 id3 = new ID3();
+            id3.train(dataset);
+            CompiledTree compiled = id3.compile();
+
+            int numberOfExamples = dataset.getNumberOfExamples();
+            double[][] examples = new double[numberOfExamples][];
+            for (int i = 0; i < numberOfExamples; i++) {
+                examples[i] = dataset.getExample(i, new double[dataset.getNumAttributes()]);
+            }
+            int[] objectPredictions = new int[numberOfExamples];
+            int[] compiledPredictions = new int[numberOfExamples];
+
+            System.out.println(dataset);
+            System.out.println("Tree nodes: " + compiled.size());
+            report("TreeNode, per example", numberOfExamples, () -> {
+                for (int i = 0; i < numberOfExamples; i++) objectPredictions[i] = id3.classify(examples[i]);
+            });
+            report("TreeNode, classifyAll", numberOfExamples, () -> id3.classifyAll(dataset, objectPredictions));
+            report("CompiledTree, per example", numberOfExamples, () -> {
+                for (int i = 0; i < numberOfExamples; i++) compiledPredictions[i] = compiled.classify(examples[i]);
+            });
+            report("CompiledTree, classifyAll", numberOfExamples, () -> compiled.classifyAll(dataset, compiledPredictions));
+            System.out.println("Predictions match: " + Arrays.equals(objectPredictions, compiledPredictions));
+            System.out.println();
+        }
+    }
+
+    private static void report(String name, int numberOfExamples, Runnable classify) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            classify.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            classify.run();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-30s %12.0f rows/sec%n", name, numberOfExamples * (double) ITERATIONS / seconds);
+    }
+}
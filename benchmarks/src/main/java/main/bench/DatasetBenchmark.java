@@ -0,0 +1,49 @@
+package main.bench;
+
+import main.Dataset;
+import main.util.DataUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static main.Main.*;
+
+/**
+ * Times the split search and entropy calculations that ID3 runs at every node, over all the examples of a dataset.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DatasetBenchmark {
+
+    @Param({ ecoliData, letterRecognitionData })
+    public String continuousFileName;
+
+    private Dataset dataset;
+    private int[] rows;
+
+    @Setup
+    public void setUp() throws IOException {
+        dataset = DataUtil.parseFile(continuousFileName);
+        rows = dataset.getRowIndices();
+    }
+
+    @Benchmark
+    public void splitByContinuousAttribute(Blackhole blackhole) {
+        for (int attribute = 0; attribute < dataset.getNumAttributes(); attribute++) {
+            if (attribute == dataset.getTarget()) continue;
+            blackhole.consume(dataset.splitByContinuousAttribute(attribute));
+        }
+    }
+
+    @Benchmark
+    public double entropy() {
+        // A fresh view of the rows, since a dataset caches its entropy
+        return new Dataset(dataset, rows).entropy();
+    }
+}
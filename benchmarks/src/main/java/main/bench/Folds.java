@@ -0,0 +1,59 @@
+package main.bench;
+
+import main.Dataset;
+import main.KFold;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * The train/test splits every benchmark uses: the examples are shuffled with a fixed seed and cut into 5 folds by
+ * KFold, the same way as the first repetition of a KFold cross validation seeded with SEED.
+ */
+final class Folds {
+
+    static final int K_FOLD = 5;
+    static final long SEED = 42;
+
+    private Folds() {}
+
+    /**
+     * A fold held out for testing and the rest of the examples to train on
+     */
+    static final class Fold {
+        final Dataset train;
+        final Dataset test;
+        final int[] classValues;    // the class value of every test example
+
+        Fold(Dataset train, Dataset test) {
+            this.train = train;
+            this.test = test;
+            classValues = new int[test.getNumberOfExamples()];
+            for (int i = 0; i < classValues.length; i++) {
+                classValues[i] = test.getClassValue(i);
+            }
+        }
+    }
+
+    /**
+     * @return      every fold of the dataset
+     */
+    static List<Fold> split(Dataset dataset) {
+        int[] indices = IntStream.range(0, dataset.getNumberOfExamples()).toArray();
+        KFold.shuffle(indices, new Random(SEED));
+        List<Fold> folds = new ArrayList<>();
+        for (KFold.Split split : new KFold(K_FOLD).createKFolds(indices)) {
+            folds.add(new Fold(dataset.sample(split.getTrainIndices()), dataset.sample(split.getTestIndices())));
+        }
+        return folds;
+    }
+
+    /**
+     * @return      the first fold of the dataset, for benchmarks that train and test once
+     */
+    static Fold holdOut(Dataset dataset) {
+        return split(dataset).get(0);
+    }
+}
@@ -0,0 +1,74 @@
+package main.bench;
+
+import main.Classifier;
+import main.Dataset;
+import main.ensemble.AdaBoost;
+import main.ensemble.RandomForest;
+import main.trees.ID3;
+import main.util.DataUtil;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+import static main.Main.letterRecognitionData;
+
+/**
+ * Times scoring a letter-recognition test fold (see Folds) with trained ensembles, one example at a time
+ * vs. classifyAll() over the packed forest, and checks that both give the same predictions.
+ */
+public class ForestBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int ITERATIONS = 10;
+
+    public static void main(String[] args) throws Exception {
+        Dataset dataset = DataUtil.parseFile(letterRecognitionData);
+        dataset.setName(letterRecognitionData);
+        Folds.Fold fold = Folds.holdOut(dataset);
+        Dataset train = fold.train;
+        Dataset test = fold.test;
+        System.out.println(dataset + ", test fold of " + test.getNumberOfExamples() + " examples");
+
+        ExecutorService executor = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            RandomForest forest = new RandomForest(new ID3(Integer.MAX_VALUE, 4, 1), 1.0, 100);
+            report(forest, train, test);
+            forest.setExecutor(executor);
+            report(forest, train, test);
+            RandomForest poissonForest = new RandomForest(new ID3(Integer.MAX_VALUE, 4, 1), 1.0, 100, true);
+            poissonForest.setExecutor(executor);
+            report(poissonForest, train, test);
+            report(new AdaBoost(new ID3(1), 200), train, test);
+            report(new AdaBoost(new ID3(4), 100), train, test);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void report(Classifier classifier, Dataset train, Dataset test) {
+        classifier.setSeed(Folds.SEED);
+        classifier.train(train);
+        int[] single = new int[test.getNumberOfExamples()];
+        int[] batch = new int[test.getNumberOfExamples()];
+        double[] example = new double[test.getNumAttributes()];
+
+        double singleTime = time(() -> {
+            for (int i = 0; i < single.length; i++) single[i] = classifier.classify(test.getExample(i, example));
+        });
+        double batchTime = time(() -> classifier.classifyAll(test, batch));
+        System.out.printf("%-45s per example: %8.2f ms   classifyAll: %8.2f ms   same predictions: %b%n",
+                classifier, singleTime, batchTime, Arrays.equals(single, batch));
+    }
+
+    private static double time(Runnable classify) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            classify.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            classify.run();
+        }
+        return (System.nanoTime() - start) / 1e6 / ITERATIONS;
+    }
+}
@@ -0,0 +1,58 @@
+package main.bench;
+
+import main.Classifier;
+import main.Dataset;
+import main.ensemble.AdaBoost;
+import main.ensemble.RandomForest;
+import main.math.Statistics;
+import main.trees.ID3;
+import main.util.DataUtil;
+
+import java.util.List;
+
+import static main.Main.ecoliData;
+import static main.Main.letterRecognitionData;
+
+/**
+ * Reports the accuracy and training time of exact vs. histogram-binned split finding on the continuous datasets,
+ * using the same 5 folds (see Folds) for every classifier.
+ */
+public class HistogramBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        for (String fileName : new String[] { letterRecognitionData, ecoliData }) {
+            Dataset dataset = DataUtil.parseFile(fileName);
+            dataset.setName(fileName);
+            List<Folds.Fold> folds = Folds.split(dataset);
+            System.out.println(dataset);
+            System.out.println("---------------------------------------");
+            for (int maxBins : new int[] { 0, 256, 64, 16 }) {
+                ID3 id3 = new ID3(Integer.MAX_VALUE, -1, 1, maxBins);
+                report(folds, id3.toString(), id3);
+            }
+            for (int maxBins : new int[] { 0, 256, 64, 16 }) {
+                ID3 tree = new ID3(8, 6, 2, maxBins);
+                report(folds, new RandomForest(tree, 0.5, 20) + " " + tree, new RandomForest(tree, 0.5, 20));
+            }
+            for (int maxBins : new int[] { 0, 256, 64, 16 }) {
+                ID3 stump = new ID3(1, -1, 1, maxBins);
+                report(folds, new AdaBoost(stump, 20, 0.8) + " " + stump, new AdaBoost(stump, 20, 0.8));
+            }
+            System.out.println();
+        }
+    }
+
+    private static void report(List<Folds.Fold> folds, String name, Classifier classifier) {
+        classifier.setSeed(Folds.SEED);
+        double accuracy = 0;
+        long trainingTime = 0;
+        for (Folds.Fold fold : folds) {
+            long begin = System.nanoTime();
+            classifier.train(fold.train);
+            trainingTime += System.nanoTime() - begin;
+            accuracy += Statistics.computeAccuracy(fold.classValues, classifier.classifyAll(fold.test));
+        }
+        System.out.printf("%-60s accuracy: %6.2f%%   training: %8.1f ms/fold%n",
+                name, 100 * accuracy / folds.size(), trainingTime / 1e6 / folds.size());
+    }
+}
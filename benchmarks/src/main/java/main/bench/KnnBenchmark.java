@@ -0,0 +1,75 @@
+package main.bench;
+
+import main.Dataset;
+import main.math.Statistics;
+import main.neighbors.KNN;
+import main.util.DataUtil;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+import static main.Main.ecoliData;
+import static main.Main.letterRecognitionData;
+
+/**
+ * Compares KNN queries through the spatial index (a KD-tree for ecoli, a VP-tree for letter-recognition) with the
+ * brute-force scan on the continuous datasets, training on 4/5 of the examples and classifying the held out fold
+ * (see Folds), and times
+ * the indexed queries again with their batches running in parallel on all cores.
+ */
+public class KnnBenchmark {
+
+    private static final int ITERATIONS = 3;
+
+    public static void main(String[] args) throws Exception {
+        ExecutorService executor = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            run(executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void run(ExecutorService executor) throws Exception {
+        for (String fileName : new String[] { ecoliData, letterRecognitionData }) {
+            Dataset dataset = DataUtil.parseFile(fileName);
+            dataset.setName(fileName);
+            Folds.Fold fold = Folds.holdOut(dataset);
+
+            System.out.println(dataset + ", " + fold.test.getNumberOfExamples() + " queries");
+            for (int k : new int[] { 1, 5 }) {
+                KNN bruteForce = new KNN(k, false);
+                KNN indexed = new KNN(k);
+                int[] bruteForcePredictions = report(bruteForce, fold);
+                int[] indexedPredictions = report(indexed, fold);
+                int agreements = 0;
+                for (int i = 0; i < bruteForcePredictions.length; i++) {
+                    if (bruteForcePredictions[i] == indexedPredictions[i]) agreements++;
+                }
+                System.out.printf("Predictions agree: %.2f%%%n", 100.0 * agreements / bruteForcePredictions.length);
+                indexed.setExecutor(executor);
+                System.out.print(Runtime.getRuntime().availableProcessors() + " threads: ");
+                int[] parallelPredictions = report(indexed, fold);
+                System.out.println("Same predictions in parallel: " + Arrays.equals(indexedPredictions, parallelPredictions));
+            }
+            System.out.println();
+        }
+    }
+
+    private static int[] report(KNN knn, Folds.Fold fold) {
+        long start = System.nanoTime();
+        knn.train(fold.train);
+        double trainingTime = (System.nanoTime() - start) / 1e6;
+
+        int[] predictions = null;
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            predictions = knn.classifyAll(fold.test);
+        }
+        double queryTime = (System.nanoTime() - start) / 1e6 / ITERATIONS;
+        System.out.printf("%-40s train: %8.2f ms   queries: %10.2f ms   accuracy: %6.2f%%%n",
+                knn, trainingTime, queryTime, 100 * Statistics.computeAccuracy(fold.classValues, predictions));
+        return predictions;
+    }
+}
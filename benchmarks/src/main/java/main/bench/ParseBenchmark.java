@@ -0,0 +1,50 @@
+package main.bench;
+
+import main.Dataset;
+import main.util.DataLoader;
+import main.util.DataUtil;
+import main.util.DatasetCache;
+import main.util.Schema;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static main.Main.*;
+
+/**
+ * Times loading each bundled dataset from ./data, by parsing the text file and by reading the dataset's cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({ carData, mushroomData, ecoliData, breastCancerData, letterRecognitionData })
+    public String fileName;
+
+    private Path path;
+    private Schema schema;
+
+    @Setup
+    public void setUp() throws IOException {
+        path = DataUtil.getPath(fileName);
+        schema = Schema.forDataFile(path);
+        // Write the cache (if it isn't up to date already) so that every call of readCache() hits it
+        DatasetCache.load(path, schema);
+    }
+
+    @Benchmark
+    public Dataset parseFile() throws IOException {
+        return DataLoader.load(path, schema);
+    }
+
+    @Benchmark
+    public Dataset readCache() throws IOException {
+        return DatasetCache.load(path, schema);
+    }
+}
@@ -0,0 +1,54 @@
+package main.bench;
+
+import main.Dataset;
+import main.trees.ID3;
+import main.util.DataUtil;
+
+import static main.Main.ecoliData;
+import static main.Main.letterRecognitionData;
+
+/**
+ * Compares ID3 training time with and without presorted attribute lists on the continuous datasets, and checks
+ * that both modes grow the same tree (i.e. make the same predictions on every example).
+ */
+public class PresortBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int ITERATIONS = 10;
+
+    public static void main(String[] args) throws Exception {
+        for (String fileName : new String[] { letterRecognitionData, ecoliData }) {
+            Dataset dataset = DataUtil.parseFile(fileName);
+            dataset.setName(fileName);
+
+            ID3 exact = new ID3();
+            ID3 presorted = new ID3(Integer.MAX_VALUE, -1, 1, true);
+            double exactTime = time(exact, dataset);
+            double presortedTime = time(presorted, dataset);
+
+            int mismatches = 0;
+            int[] exactPredictions = exact.classifyAll(dataset);
+            int[] presortedPredictions = presorted.classifyAll(dataset);
+            for (int i = 0; i < exactPredictions.length; i++) {
+                if (exactPredictions[i] != presortedPredictions[i]) mismatches++;
+            }
+
+            System.out.println(dataset);
+            System.out.printf("%-20s %10.2f ms/train%n", exact, exactTime);
+            System.out.printf("%-20s %10.2f ms/train%n", presorted, presortedTime);
+            System.out.println("Speedup: " + String.format("%.2f", exactTime / presortedTime) + "x, prediction mismatches: " + mismatches);
+            System.out.println();
+        }
+    }
+
+    private static double time(ID3 id3, Dataset dataset) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            id3.train(dataset);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            id3.train(dataset);
+        }
+        return (System.nanoTime() - start) / 1e6 / ITERATIONS;
+    }
+}
@@ -0,0 +1,55 @@
+package main.bench;
+
+import main.math.AliasSampler;
+import main.math.Bootstrap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times drawing AdaBoost's weighted bootstrap samples and RandomForest's unweighted bootstrap samples.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SamplingBenchmark {
+
+    @Param({ "1000", "20000" })
+    public int numberOfIndices;
+
+    private double[] weights;
+    private Random random;
+
+    @Setup
+    public void setUp() {
+        random = new Random(42);
+        weights = new double[numberOfIndices];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = random.nextDouble();
+            sum += weights[i];
+        }
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] /= sum;
+        }
+    }
+
+    @Benchmark
+    public int[] weightedSample() {
+        return new AliasSampler(weights).sample(numberOfIndices, random);
+    }
+
+    @Benchmark
+    public int[] multinomialSample() {
+        return Bootstrap.toIndices(Bootstrap.multinomialCounts(numberOfIndices, numberOfIndices, random));
+    }
+
+    @Benchmark
+    public int[] poissonSample() {
+        return Bootstrap.toIndices(Bootstrap.poissonCounts(numberOfIndices, 1.0, random));
+    }
+}
@@ -2,5 +2,35 @@ package main;
 
 public interface Classifier {
     int classify(String[] example);
+    int classify(double[] example);     // example encoded with Dataset.encode() or Dataset.getExample()
     void train(Dataset dataset);
+
+    /**
+     * Classifies every example in the dataset, which must be a view of the same data as the training dataset
+     * (e.g. a fold from Dataset.sample()) so that its attribute codes match
+     * @param dataset       the examples to classify
+     * @param predictions   array that receives the predicted class value of each example
+     */
+    default void classifyAll(Dataset dataset, int[] predictions) {
+        double[] example = new double[dataset.getNumAttributes()];
+        for (int i = 0; i < dataset.getNumberOfExamples(); i++) {
+            predictions[i] = classify(dataset.getExample(i, example));
+        }
+    }
+
+    /**
+     * @param dataset   the examples to classify (see classifyAll(Dataset, int[]))
+     * @return          the predicted class value of each example
+     */
+    default int[] classifyAll(Dataset dataset) {
+        int[] predictions = new int[dataset.getNumberOfExamples()];
+        classifyAll(dataset, predictions);
+        return predictions;
+    }
+
+    /**
+     * Seeds the classifier's source of randomness so that training is reproducible (classifiers that don't use
+     * randomness ignore it)
+     */
+    default void setSeed(long seed) {}
 }
@@ -1,236 +1,665 @@
 package main;
 
 import main.math.Tuple;
-import main.util.Util;
 
 import java.util.*;
-import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static java.lang.Math.log;
 
 public class Dataset {
     private String name;
-    private String[][] data;                    // 2D array of entire parsed .data file (rows are examples, columns are attributes)
+    private int numRows;                        // The number of rows in the original dataset (i.e. the length of every column)
     private int numAttributes;                  // The number of attributes (including the target attribute)
     private int target;                         // The array index of the target attribute column in the data array
-    private int type;                           // 0 = discrete, 1 = continuous
+    private int type;                           // 0 = discrete, 1 = continuous, 2 = mixed (see getType())
+    private boolean[] continuous;               // Whether each column is continuous (never the target column)
     private String[][] uniqueAttributeValues;   // 2D array of unique attribute values for each attribute (rows are attributes, columns are values)
     private List<String> classes;               // List of unique class (i.e. target attribute) values
-    private List<Integer> rowIndices;           // List of the rows from the original dataset (i.e. data) that make up the current dataset (i.e. subset)
+    private int[] rowIndices;                   // Buffer of rows from the original dataset, possibly shared with other subsets
+    private int from;                           // Start (inclusive) of the slice of rowIndices that makes up the current dataset (i.e. subset)
+    private int to;                             // End (exclusive) of the slice of rowIndices that makes up the current dataset
+    private int[][] sortedRowIndices;           // Optional copies of rowIndices sorted by each continuous attribute (same slice bounds)
+    private int maxBins;                        // Maximum number of bins per continuous column (0 if the columns aren't binned)
+    private short[][] bins;                     // Bin of every continuous cell, stored by column (bins[attribute][row])
+    private double[][] binPivots;               // Pivot between each bin and the next for each continuous column
+    private double[][] histograms;              // Class weights per bin (bin * classes + class) of each continuous attribute, computed lazily
+    private double[] weights;                   // Optional weight of every row (weights[row]), null if every example counts once
     private double entropy;                     // Entropy of dataset
+    private List<Map<String, Integer>> dictionaries; // Maps each attribute value to its index in uniqueAttributeValues (i.e. its code)
+    private int[][] codes;                      // Dictionary code of every cell, stored by column (codes[attribute][row])
+    private double[][] values;                  // Parsed value of every continuous cell, stored by column (null for discrete columns)
+    private double[][] sortedValues;            // Sorted distinct values of each continuous column (null for discrete columns)
+    private int[][] ranks;                      // Index of every continuous cell's value in sortedValues (ranks[attribute][row])
 
     public static final int DISCRETE = 0;
     public static final int CONTINUOUS = 1;
+    public static final int MIXED = 2;
 
     public Dataset(String[][] data, int target, int type) {
-        List<Integer> rowIndices = IntStream.range(0, data.length).boxed().collect(Collectors.toList());
-        initialize(data, rowIndices, target, type);
-        indexStrings();
+        this(indexStrings(data), target, type);
     }
 
-    public Dataset(Dataset dataset, List<Integer> rowIndices) {
-        initialize(dataset.getData(), rowIndices, dataset.getTarget(), dataset.getType());
+    /**
+     * Creates a dataset from dictionary-encoded columns, e.g. as produced by a loader that never materialises the
+     * rows as strings
+     * @param uniqueAttributeValues     the distinct values of each column (indexed by code)
+     * @param codes                     the code of every cell, stored by column (codes[attribute][row])
+     * @param target                    the index of the target column
+     * @param type                      DISCRETE or CONTINUOUS
+     */
+    public Dataset(String[][] uniqueAttributeValues, int[][] codes, int target, int type) {
+        this(uniqueAttributeValues, codes, target, uniformTypes(codes.length, type));
+    }
+
+    /**
+     * Creates a dataset from dictionary-encoded columns that can be a mix of discrete and continuous attributes
+     * @param uniqueAttributeValues     the distinct values of each column (indexed by code)
+     * @param codes                     the code of every cell, stored by column (codes[attribute][row])
+     * @param target                    the index of the target column (always discrete)
+     * @param types                     DISCRETE or CONTINUOUS for each column
+     */
+    public Dataset(String[][] uniqueAttributeValues, int[][] codes, int target, int[] types) {
+        int numRows = codes[0].length;
+        continuous = new boolean[codes.length];
+        int numContinuous = 0;
+        for (int col = 0; col < codes.length; col++) {
+            continuous[col] = types[col] == CONTINUOUS && col != target;
+            if (continuous[col]) numContinuous++;
+        }
+        int type = numContinuous == 0 ? DISCRETE : numContinuous == codes.length - 1 ? CONTINUOUS : MIXED;
+        initialize(numRows, codes.length, IntStream.range(0, numRows).toArray(), 0, numRows, target, type);
+        this.uniqueAttributeValues = uniqueAttributeValues;
+        this.classes = Arrays.asList(uniqueAttributeValues[target]);
+        this.codes = codes;
+        encodeColumns();
+    }
+
+    private Dataset(Tuple<String[][], int[][]> columns, int target, int type) {
+        this(columns.first(), columns.second(), target, type);
+    }
+
+    private static int[] uniformTypes(int numAttributes, int type) {
+        int[] types = new int[numAttributes];
+        Arrays.fill(types, type);
+        return types;
+    }
+
+    public Dataset(Dataset dataset, int[] rowIndices) {
+        this(dataset, rowIndices, 0, rowIndices.length);
+    }
+
+    /**
+     * Creates a view of the rows in rowIndices[from, to) that shares its column arrays with the given dataset
+     */
+    private Dataset(Dataset dataset, int[] rowIndices, int from, int to) {
+        initialize(dataset.numRows, dataset.numAttributes, rowIndices, from, to, dataset.getTarget(), dataset.getType());
+        this.continuous = dataset.continuous;
         this.uniqueAttributeValues = dataset.getUniqueAttributeValues();
         this.classes = dataset.getClasses();
+        this.dictionaries = dataset.dictionaries;
+        this.codes = dataset.codes;
+        this.values = dataset.values;
+        this.sortedValues = dataset.sortedValues;
+        this.ranks = dataset.ranks;
+        this.maxBins = dataset.maxBins;
+        this.bins = dataset.bins;
+        this.binPivots = dataset.binPivots;
+        this.weights = dataset.weights;
         this.name = dataset.name;
     }
 
-    private void initialize(String[][] data, List<Integer> rowIndices, int target, int type) {
-        this.data = data;
+    private void initialize(int numRows, int numAttributes, int[] rowIndices, int from, int to, int target, int type) {
+        this.numRows = numRows;
         this.rowIndices = rowIndices;
-        this.numAttributes = data[0].length;
+        this.from = from;
+        this.to = to;
+        this.numAttributes = numAttributes;
         this.target = target;
         this.type = type;
         this.entropy = -1;
     }
 
-    public String[][] getData() { return data; }
-
     public int getTarget() { return target; }
 
     public int getNumAttributes() { return numAttributes; }
 
-    public int getNumberOfExamples() { return rowIndices.size(); }
+    public int getNumberOfExamples() { return to - from; }
 
+    /**
+     * @return      DISCRETE or CONTINUOUS if every attribute (other than the target) is of that type, or else MIXED
+     */
     public int getType() { return type; }
 
     public String[][] getUniqueAttributeValues() { return uniqueAttributeValues; }
 
     public List<String> getClasses() { return classes; }
 
-    public boolean isEmpty() { return rowIndices.size() == 0; }
+    public boolean isEmpty() { return to == from; }
+
+    public boolean isContinuous(int attribute) { return continuous[attribute]; }
 
-    public List<String> getAttributeColumn(int attribute) {
-        List<String> attributes = new ArrayList<>();
-        for (int row : rowIndices) {
-            attributes.add(data[row][attribute]);
+    /**
+     * @param i     the position of an example in this dataset
+     * @return      the row of the example in the original dataset (i.e. data)
+     */
+    public int getRowIndex(int i) { return rowIndices[from + i]; }
+
+    /**
+     * @return      a copy of the rows from the original dataset that make up this dataset
+     */
+    public int[] getRowIndices() { return Arrays.copyOfRange(rowIndices, from, to); }
+
+    /**
+     * Creates a subset of this dataset from positions of its examples (e.g. a fold or a bootstrap sample)
+     * @param positions     the positions of the examples in this dataset, which may repeat
+     * @return              the subset
+     */
+    public Dataset sample(int[] positions) {
+        int[] rows = new int[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            rows[i] = rowIndices[from + positions[i]];
         }
-        return attributes;
+        return new Dataset(this, rows);
     }
 
-    public void setName(String name) { this.name = name; }
+    /**
+     * Creates a copy of this dataset that also keeps its rows sorted by each continuous attribute. The sorted
+     * lists are partitioned (stably) along with the rows whenever the copy is split, so finding a pivot in any
+     * of its subsets never has to sort again (as in SLIQ/SPRINT).
+     * @return      the presorted copy
+     */
+    public Dataset presort() {
+        Dataset presorted = new Dataset(this, getRowIndices());
+        int numberOfExamples = getNumberOfExamples();
+        presorted.sortedRowIndices = new int[numAttributes][];
+        // If this dataset is presorted already, copying its sorted lists is enough
+        if (sortedRowIndices != null) {
+            for (int col = 0; col < numAttributes; col++) {
+                if (sortedRowIndices[col] != null) {
+                    presorted.sortedRowIndices[col] = Arrays.copyOfRange(sortedRowIndices[col], from, to);
+                }
+            }
+            return presorted;
+        }
+        long[] pairs = new long[numberOfExamples];
+        for (int col = 0; col < numAttributes; col++) {
+            if (!isContinuous(col)) continue;
+            // Pack each example's value rank (high bits) and position (low bits) so the sort is stable
+            for (int i = 0; i < numberOfExamples; i++) {
+                pairs[i] = ((long) ranks[col][presorted.rowIndices[i]] << 32) | i;
+            }
+            Arrays.sort(pairs);
+            int[] sorted = new int[numberOfExamples];
+            for (int i = 0; i < numberOfExamples; i++) {
+                sorted[i] = presorted.rowIndices[(int) pairs[i]];
+            }
+            presorted.sortedRowIndices[col] = sorted;
+        }
+        return presorted;
+    }
 
     /**
-     * Splits examples in dataset by class value
-     * @return  HashMap mapping each class value to the list of examples with that class value
+     * Creates a copy of this dataset whose continuous columns are quantised into at most maxBins bins of roughly
+     * equal frequency (over this dataset's rows). Pivots of the copy and of its subsets are then searched over
+     * per-bin class histograms instead of over every distinct value.
+     * @param maxBins   the maximum number of bins per continuous column (at most Short.MAX_VALUE)
+     * @return          the binned copy (or this dataset if it's already binned the same way)
      */
-    public Map<Integer, Dataset> splitByClass() {
-        Map<Integer, List<Integer>> classRows = new HashMap<>();
-        List<String[]> examples = rows();
-        List<String> classes = getClasses();
+    public Dataset bin(int maxBins) {
+        if (this.maxBins == maxBins) return this;
+        Dataset binned = new Dataset(this, getRowIndices());
+        binned.maxBins = maxBins;
+        binned.bins = new short[numAttributes][];
+        binned.binPivots = new double[numAttributes][];
+        double examplesPerBin = getNumberOfExamples() / (double) maxBins;
+        for (int col = 0; col < numAttributes; col++) {
+            if (!isContinuous(col)) continue;
+            int[] rankCounts = new int[sortedValues[col].length];
+            for (int i = from; i < to; i++) {
+                rankCounts[ranks[col][rowIndices[i]]]++;
+            }
 
-        for (int i=0; i<classes.size(); i++) {
-            classRows.put(i, new ArrayList<>());
-        }
+            // Assign consecutive ranks to the same bin until it holds its share of the examples
+            int[] rankBins = new int[rankCounts.length];
+            double[] pivots = new double[maxBins - 1];
+            int bin = 0;
+            int seen = 0;
+            for (int rank = 0; rank < rankCounts.length; rank++) {
+                rankBins[rank] = bin;
+                seen += rankCounts[rank];
+                if (rankCounts[rank] > 0 && seen >= (bin + 1) * examplesPerBin
+                        && bin < maxBins - 1 && rank < rankCounts.length - 1) {
+                    pivots[bin++] = (sortedValues[col][rank] + sortedValues[col][rank + 1]) / 2;
+                }
+            }
+            binned.binPivots[col] = Arrays.copyOf(pivots, bin);
 
-        for (int i = 0; i < examples.size(); i++) {
-            int value = classes.indexOf(examples.get(i)[target]);
-            classRows.computeIfAbsent(value, k -> new ArrayList<>());
-            classRows.get(value).add(rowIndices.get(i));
+            binned.bins[col] = new short[numRows];
+            for (int row = 0; row < numRows; row++) {
+                binned.bins[col][row] = (short) rankBins[ranks[col][row]];
+            }
         }
+        return binned;
+    }
 
-        Map<Integer, Dataset> separated = new HashMap<>();
-        for (Map.Entry<Integer, List<Integer>> entry : classRows.entrySet()) {
-            Dataset subset = new Dataset(this, entry.getValue());
-            separated.putIfAbsent(entry.getKey(), subset);
+    public int getMaxBins() { return maxBins; }
+
+    /**
+     * Creates a view of this dataset in which each example counts with the given weight (e.g. AdaBoost's example
+     * weights) when computing entropies and most frequent classes. Examples that share a row share its weight.
+     * @param weights   the weight of each example, aligned with the examples of this dataset
+     * @return          the weighted view
+     */
+    public Dataset weight(double[] weights) {
+        Dataset weighted = slice(from, to);
+        weighted.weights = null;    // don't overwrite the weights this dataset shares with its other views
+        weighted.setWeights(weights);
+        return weighted;
+    }
+
+    /**
+     * Replaces the weights of this dataset's examples in place, reusing its weight array if it has one, so that a
+     * view that is reweighted many times (e.g. every round of AdaBoost) doesn't allocate a new array every time.
+     * Other views that share the array (e.g. subsets split off this one) see the new weights as well.
+     * @param weights   the weight of each example, aligned with the examples of this dataset
+     */
+    public void setWeights(double[] weights) {
+        if (this.weights == null) this.weights = new double[numRows];
+        for (int i = 0; i < weights.length; i++) {
+            this.weights[rowIndices[from + i]] = weights[i];
         }
+        histograms = null;
+    }
 
-        return separated;
+    private double weightOf(int row) { return weights == null ? 1.0 : weights[row]; }
+
+    /**
+     * Creates a view of rowIndices[from, to), which must be a contiguous part of this dataset after a split
+     */
+    private Dataset slice(int from, int to) {
+        Dataset subset = new Dataset(this, rowIndices, from, to);
+        subset.sortedRowIndices = sortedRowIndices;
+        return subset;
+    }
+
+    /**
+     * Returns the dictionary codes of the given attribute for every row of the original dataset, so the column
+     * must be indexed with getRowIndex() rather than with the position of an example in this subset
+     */
+    public int[] getCodes(int attribute) { return codes[attribute]; }
+
+    /**
+     * Returns the parsed values of the given continuous attribute for every row of the original dataset, indexed
+     * the same way as getCodes()
+     */
+    public double[] getValues(int attribute) { return values[attribute]; }
+
+    /**
+     * @param i     the position of an example in this dataset
+     * @return      the class value of the example (i.e. its index in getClasses())
+     */
+    public int getClassValue(int i) { return codes[target][rowIndices[from + i]]; }
+
+    public void setName(String name) { this.name = name; }
+
+    /**
+     * Copies the i-th example of this dataset into the given array in its encoded form (see encode())
+     * @param i         the position of the example in this dataset
+     * @param example   the array to fill, of length getNumAttributes()
+     * @return          the filled array
+     */
+    public double[] getExample(int i, double[] example) {
+        int row = rowIndices[from + i];
+        for (int col = 0; col < numAttributes; col++) {
+            example[col] = isContinuous(col) ? values[col][row] : codes[col][row];
+        }
+        return example;
     }
 
-    public List<String[]> rows() {
-        List<String[]> rows = new ArrayList<>();
-        for (Integer row : rowIndices) {
-            rows.add(data[row]);
+    /**
+     * Encodes a raw example so it can be classified on the primitive columns: continuous attributes are parsed
+     * to doubles and every other attribute is replaced by its dictionary code (-1 if the value was never seen)
+     * @param example       the raw attribute values of the example
+     * @return              the encoded example
+     */
+    public double[] encode(String[] example) {
+        double[] encoded = new double[numAttributes];
+        for (int col = 0; col < numAttributes; col++) {
+            if (isContinuous(col)) {
+                encoded[col] = Double.parseDouble(example[col]);
+            } else {
+                Integer code = dictionaries.get(col).get(example[col]);
+                encoded[col] = code == null ? -1 : code;
+            }
         }
-        return rows;
+        return encoded;
     }
 
     /**
-     * Splits examples into new subsets based on values of given attribute
-     * @param attribute     the attribute to split on
-     * @return              a Tuple containing the unique attribute values and the split datasets
+     * Splits examples in dataset by class value
+     * @return  HashMap mapping each class value to the list of examples with that class value
      */
-    public Tuple<List<String>, List<Dataset>> splitByDiscreteAttribute(int attribute) {
-        List<String> values = new ArrayList<>();
-        List<Dataset> subsets = new ArrayList<>();
-        Map<String,List<Integer>> attributeExamples = new HashMap<>();
+    public Map<Integer, Dataset> splitByClass() {
+        int[] rows = getRowIndices();
+        int[] bounds = partition(rows, 0, rows.length, codes[target], classes.size());
 
-        String[] attributeValues = getUniqueAttributeValues()[attribute];
-        for (String value : attributeValues) {
-            attributeExamples.put(value, new ArrayList<>());
+        Map<Integer, Dataset> separated = new HashMap<>();
+        for (int i = 0; i < classes.size(); i++) {
+            separated.put(i, new Dataset(this, rows, bounds[i], bounds[i + 1]));
         }
 
-        List<String[]> examples = rows();
-        for (int i=0; i<examples.size(); i++) {
-            String value = examples.get(i)[attribute];
-            attributeExamples.computeIfAbsent(value, k -> new ArrayList<>());
-            attributeExamples.get(value).add(rowIndices.get(i));
+        return separated;
+    }
+
+    /**
+     * Splits examples into new subsets based on values of given attribute. The subsets are views over this
+     * dataset's rows, which are reordered in place (stably) so that each subset is a contiguous slice.
+     * @param attribute     the attribute to split on
+     * @return              the split datasets, one per unique attribute value (indexed by dictionary code)
+     */
+    public List<Dataset> splitByDiscreteAttribute(int attribute) {
+        int numValues = uniqueAttributeValues[attribute].length;
+        int[] bounds = partition(rowIndices, from, to, codes[attribute], numValues);
+        if (sortedRowIndices != null) {
+            for (int[] sorted : sortedRowIndices) {
+                if (sorted != null) partition(sorted, from, to, codes[attribute], numValues);
+            }
         }
 
-        for (Map.Entry<String, List<Integer>> entry : attributeExamples.entrySet()) {
-            Dataset subset = new Dataset(this, entry.getValue());
-            values.add(entry.getKey());
-            subsets.add(subset);
+        List<Dataset> subsets = new ArrayList<>();
+        for (int code = 0; code < numValues; code++) {
+            subsets.add(slice(bounds[code], bounds[code + 1]));
         }
 
-        return new Tuple<>(values, subsets);
+        return subsets;
     }
 
     /**
-     * Splits examples into 2 new subsets based on the best determined "pivot" (i.e. threshold)
+     * Finds the best "pivot" (i.e. threshold) to split examples into 2 subsets. The (value, class) pairs are sorted
+     * once and every candidate pivot is then evaluated by sweeping over them with running class counts.
      * @param attribute     the attribute to split on
-     * @return              a Tuple containing the pivot and the two split datasets
+     * @return              a Tuple containing the pivot and the weighted entropy of the split (null if all
+     *                      values of the attribute are the same)
      */
-    public Tuple<Double, Tuple<Dataset, Dataset>> splitByContinuousAttribute(int attribute) {
-        double[] values = getAttributeColumn(attribute).stream().mapToDouble(Double::parseDouble).toArray();
-        Arrays.sort(values);
-        // Best attribute value, 2 subsets
-        Tuple<Double, Tuple<Dataset, Dataset>> bestSubsets = null;
+    public Tuple<Double, Double> splitByContinuousAttribute(int attribute) {
+        if (bins != null) return splitByBinnedAttribute(attribute);
+        int numberOfExamples = getNumberOfExamples();
+        int[] rankColumn = ranks[attribute];
+        int[] classCodes = codes[target];
+        // Pack each example's value rank (high bits) and row (low bits) so a primitive sort orders them by value
+        long[] pairs = new long[numberOfExamples];
+        if (sortedRowIndices != null) {
+            int[] sorted = sortedRowIndices[attribute];
+            for (int i = 0; i < numberOfExamples; i++) {
+                int row = sorted[from + i];
+                pairs[i] = ((long) rankColumn[row] << 32) | row;
+            }
+        } else {
+            for (int i = 0; i < numberOfExamples; i++) {
+                int row = rowIndices[from + i];
+                pairs[i] = ((long) rankColumn[row] << 32) | row;
+            }
+            Arrays.sort(pairs);
+        }
+
+        double[] values = sortedValues[attribute];
+        double[] underCounts = new double[classes.size()];
+        double[] overCounts = getClassWeights();
+        double total = sum(overCounts);
+        double under = 0;
+        // Best attribute value, weighted entropy
+        Tuple<Double, Double> bestPivot = null;
 
         double minimumEntropy = 0;
-        for (int i = 0; i < (values.length - 1); i++) {
-            Double current = values[i];
-            Double next = values[i+1];
-            if(current.equals(next)) {
+        for (int i = 0; i < (numberOfExamples - 1); i++) {
+            int row = (int) pairs[i];
+            double weight = weightOf(row);
+            underCounts[classCodes[row]] += weight;
+            overCounts[classCodes[row]] -= weight;
+            under += weight;
+
+            int current = (int) (pairs[i] >>> 32);
+            int next = (int) (pairs[i+1] >>> 32);
+            if (current == next) {
                 continue;
             }
-            double pivot = (current + next) / 2;
-            Tuple<Dataset, Dataset> subsets = splitAtPivot(attribute, pivot);
+            double pivot = (values[current] + values[next]) / 2;
+            double entropy = calculateWeightedEntropy(underCounts, under, overCounts, total - under);
+            if(bestPivot == null || entropy < minimumEntropy) {
+                bestPivot = new Tuple<>(pivot, entropy);
+                minimumEntropy = entropy;
+            }
+        }
+        return bestPivot;
+    }
+
+    /**
+     * Finds the best pivot between two bins of a binned continuous attribute by sweeping over its histogram
+     * @param attribute     the attribute to split on
+     * @return              a Tuple containing the pivot and the weighted entropy of the split (null if all
+     *                      examples fall in the same bin)
+     */
+    private Tuple<Double, Double> splitByBinnedAttribute(int attribute) {
+        int numClasses = classes.size();
+        double[] histogram = getHistogram(attribute);
+        double[] pivots = binPivots[attribute];
+        double[] underCounts = new double[numClasses];
+        double[] overCounts = getClassWeights();
+        double total = sum(overCounts);
+        // Nothing is left to split off after the last non-empty bin
+        int lastBin = pivots.length;
+        while (lastBin > 0 && sum(histogram, lastBin * numClasses, numClasses) == 0) {
+            lastBin--;
+        }
+        // Best attribute value, weighted entropy
+        Tuple<Double, Double> bestPivot = null;
 
-            double entropy = calculateWeightedEntropy(subsets);
-            if(bestSubsets == null || entropy < minimumEntropy) {
-                bestSubsets = new Tuple<>(pivot, subsets);
+        double minimumEntropy = 0;
+        double under = 0;
+        for (int bin = 0; bin < lastBin; bin++) {
+            double binCount = 0;
+            for (int c = 0; c < numClasses; c++) {
+                double count = histogram[bin * numClasses + c];
+                underCounts[c] += count;
+                overCounts[c] -= count;
+                binCount += count;
+            }
+            under += binCount;
+            // An empty bin gives the same split as the previous pivot
+            if (binCount == 0) {
+                continue;
+            }
+            double entropy = calculateWeightedEntropy(underCounts, under, overCounts, total - under);
+            if (bestPivot == null || entropy < minimumEntropy) {
+                bestPivot = new Tuple<>(pivots[bin], entropy);
                 minimumEntropy = entropy;
             }
         }
-        return bestSubsets;
+        return bestPivot;
+    }
+
+    private double[] getHistogram(int attribute) {
+        if (histograms == null) histograms = new double[numAttributes][];
+        if (histograms[attribute] == null) histograms[attribute] = computeHistogram(attribute, from, to);
+        return histograms[attribute];
+    }
+
+    private double[] computeHistogram(int attribute, int from, int to) {
+        int numClasses = classes.size();
+        double[] histogram = new double[(binPivots[attribute].length + 1) * numClasses];
+        short[] binColumn = bins[attribute];
+        int[] classCodes = codes[target];
+        for (int i = from; i < to; i++) {
+            int row = rowIndices[i];
+            histogram[binColumn[row] * numClasses + classCodes[row]] += weightOf(row);
+        }
+        return histogram;
     }
 
     /**
-     * Splits the examples into two subsets based on pivot value for given attribute
+     * Splits the examples into two subsets based on pivot value for given attribute. The subsets are views over
+     * this dataset's rows, which are reordered in place (stably) so that each subset is a contiguous slice.
      * @param attribute     the attribute to split on
-     * @param pivot         the pivot value (under subset contains values < pivot, over subset contains values > pivot)
+     * @param pivot         the pivot value (under subset contains values <= pivot, over subset contains values > pivot)
      * @return              the two new split subsets
      */
-    private Tuple<Dataset, Dataset> splitAtPivot(int attribute, double pivot) {
-        List<Integer> lessThan = new ArrayList<>();
-        List<Integer> greaterThan = new ArrayList<>();
-        List<String[]> examples = rows();
-        for (int i=0; i<examples.size(); i++) {
-            double value = Double.parseDouble(examples.get(i)[attribute]);
-            if (value <= pivot) {
-                lessThan.add(rowIndices.get(i));
-            } else if (value > pivot) {
-                greaterThan.add(rowIndices.get(i));
+    public Tuple<Dataset, Dataset> splitAtPivot(int attribute, double pivot) {
+        int under = partition(rowIndices, from, to, values[attribute], pivot);
+        if (sortedRowIndices != null) {
+            for (int[] sorted : sortedRowIndices) {
+                if (sorted != null) partition(sorted, from, to, values[attribute], pivot);
+            }
+        }
+
+        Dataset underSubset = slice(from, under);
+        Dataset overSubset = slice(under, to);
+        // Subtracting weighted histograms would leave rounding errors in bins that should be empty, so the
+        // subsets of a weighted dataset compute their own histograms
+        if (histograms != null && weights == null) {
+            // Only scan the smaller subset, the larger subset's histograms are this dataset's minus the smaller's
+            boolean underIsSmaller = under - from <= to - under;
+            Dataset smaller = underIsSmaller ? underSubset : overSubset;
+            Dataset larger = underIsSmaller ? overSubset : underSubset;
+            smaller.histograms = new double[numAttributes][];
+            larger.histograms = new double[numAttributes][];
+            for (int col = 0; col < numAttributes; col++) {
+                if (histograms[col] == null) continue;
+                double[] smallerHistogram = computeHistogram(col, smaller.from, smaller.to);
+                double[] largerHistogram = histograms[col];
+                for (int i = 0; i < largerHistogram.length; i++) {
+                    largerHistogram[i] -= smallerHistogram[i];
+                }
+                smaller.histograms[col] = smallerHistogram;
+                larger.histograms[col] = largerHistogram;
+            }
+            // The histograms now belong to the subsets
+            histograms = null;
+        }
+
+        return new Tuple<>(underSubset, overSubset);
+    }
+
+    /**
+     * Stably reorders rows[from, to) so the rows with column values <= pivot come first
+     * @return              the end of the rows with values <= pivot (i.e. the start of the rows with values > pivot)
+     */
+    private static int partition(int[] rows, int from, int to, double[] column, double pivot) {
+        int[] over = new int[to - from];
+        int under = from;
+        int numberOver = 0;
+        for (int i = from; i < to; i++) {
+            int row = rows[i];
+            if (column[row] <= pivot) {
+                rows[under++] = row;
             } else {
-                System.err.println("Value shouldn't match pivot");
-                System.exit(-1);
+                over[numberOver++] = row;
             }
         }
+        System.arraycopy(over, 0, rows, under, numberOver);
+        return under;
+    }
 
-        Dataset under = new Dataset(this, lessThan);
-        Dataset over = new Dataset(this, greaterThan);
+    /**
+     * Stably reorders rows[from, to) by the given column's codes (i.e. a counting sort)
+     * @param rows          the buffer of row indices
+     * @param from          start of the slice to reorder (inclusive)
+     * @param to            end of the slice to reorder (exclusive)
+     * @param column        the codes to order by
+     * @param numCodes      the number of distinct codes in column
+     * @return              the bounds of each code's slice, i.e. code c occupies rows[bounds[c], bounds[c+1])
+     */
+    private static int[] partition(int[] rows, int from, int to, int[] column, int numCodes) {
+        int[] bounds = new int[numCodes + 1];
+        for (int i = from; i < to; i++) {
+            bounds[column[rows[i]] + 1]++;
+        }
+        bounds[0] = from;
+        for (int code = 0; code < numCodes; code++) {
+            bounds[code + 1] += bounds[code];
+        }
 
-        return new Tuple<>(under, over);
+        int[] sorted = new int[to - from];
+        int[] next = Arrays.copyOf(bounds, numCodes);
+        for (int i = from; i < to; i++) {
+            int row = rows[i];
+            sorted[next[column[row]]++ - from] = row;
+        }
+        System.arraycopy(sorted, 0, rows, from, sorted.length);
+
+        return bounds;
     }
 
     /**
-     * Calculates the weighted entropy of the subsets (i.e. From the info gain formula on Wikipedia, this
-     * calculates -sum(p(t)*H(t)) for all subsets t.
+     * Calculates the weighted entropy of the subsets that would result from splitting on a discrete attribute,
+     * without creating the subsets
      *
-     * @param subsets       the list of subsets
+     * @param attribute     the discrete attribute to split on
      * @return              the weighted entropy of the subsets
      */
-    public static double calculateWeightedEntropy(List<Dataset> subsets) {
+    public double calculateWeightedEntropy(int attribute) {
+        int numValues = uniqueAttributeValues[attribute].length;
+        int numClasses = classes.size();
+        // Class counts for each value of the attribute, flattened (value * numClasses + class)
+        double[] counts = new double[numValues * numClasses];
+        int[] column = codes[attribute];
+        int[] classCodes = codes[target];
+        double total = 0;
+        for (int i = from; i < to; i++) {
+            int row = rowIndices[i];
+            double weight = weightOf(row);
+            counts[column[row] * numClasses + classCodes[row]] += weight;
+            total += weight;
+        }
+
         double entropy = 0.0;
-        int sum = 0;
-        for(Dataset subset : subsets) {
-            sum += subset.getNumberOfExamples();
-            entropy += subset.entropy() * (double) subset.getNumberOfExamples();
+        for (int value = 0; value < numValues; value++) {
+            double sum = sum(counts, value * numClasses, numClasses);
+            entropy += entropy(counts, value * numClasses, numClasses, sum) * sum;
         }
 
-        entropy /= (sum * subsets.size());
+        entropy /= (total * numValues);
         return entropy;
     }
 
     /**
-     * Calculates the weighted entropy of the two subsets for continuous attributes
+     * Calculates the weighted entropy of the two subsets of a continuous split from their class counts
      *
-     * @param subsets       the two subsets
+     * @param underCounts   the class counts (or weights) of the under subset
+     * @param under         the number of examples (or total weight) in the under subset
+     * @param overCounts    the class counts (or weights) of the over subset
+     * @param over          the number of examples (or total weight) in the over subset
      * @return              the weighted entropy of the two subsets
      */
-    public static double calculateWeightedEntropy(Tuple<Dataset, Dataset> subsets) {
+    private static double calculateWeightedEntropy(double[] underCounts, double under, double[] overCounts, double over) {
         double entropy = 0;
-        entropy += subsets.first().entropy() * subsets.first().getNumberOfExamples();
-        entropy += subsets.second().entropy() * subsets.second().getNumberOfExamples();
+        entropy += entropy(underCounts, 0, underCounts.length, under) * under;
+        entropy += entropy(overCounts, 0, overCounts.length, over) * over;
 
-        entropy /= ((subsets.first().getNumberOfExamples() + subsets.second().getNumberOfExamples()) * 2);
+        entropy /= ((under + over) * 2);
 
         return entropy;
     }
 
+    /**
+     * Calculates the entropy of a set of examples from its class counts
+     * @param counts    array containing the class counts (or weights)
+     * @param offset    index of the first class count in counts
+     * @param length    the number of class counts
+     * @param sum       the total number of examples (or total weight)
+     * @return          the entropy
+     */
+    private static double entropy(double[] counts, int offset, int length, double sum) {
+        double entropy = 0.0;
+        if (sum == 0) return entropy;
+        for (int i = offset; i < offset + length; i++) {
+            double count = counts[i];
+            if (count == 0) continue;
+            entropy -= count / sum * log2(count / sum);
+        }
+        return entropy;
+    }
+
     /**
      * Calculates the entropy of the dataset
      * @return      the dataset's entropy
@@ -241,19 +670,75 @@ public class Dataset {
         // Entropy of an empty dataset is trivially zero
         if (isEmpty()) return 0.0;
         // Get frequency of each class value in the dataset
-        Map<String, Integer> classes = Util.getFrequencyMap(getAttributeColumn(target));
+        double[] counts = getClassWeights();
+        entropy = entropy(counts, 0, counts.length, sum(counts));
+
+        return entropy;
+    }
+
+    /**
+     * @return      the number of examples of each class value (indexed like getClasses())
+     */
+    public int[] getClassCounts() {
+        int[] counts = new int[classes.size()];
+        int[] classCodes = codes[target];
+        for (int i = from; i < to; i++) {
+            counts[classCodes[rowIndices[i]]]++;
+        }
+        return counts;
+    }
+
+    /**
+     * @return      the total weight of the examples of each class value (same as getClassCounts() if unweighted)
+     */
+    private double[] getClassWeights() {
+        double[] counts = new double[classes.size()];
+        int[] classCodes = codes[target];
+        for (int i = from; i < to; i++) {
+            int row = rowIndices[i];
+            counts[classCodes[row]] += weightOf(row);
+        }
+        return counts;
+    }
 
+    private static double sum(double[] values) {
+        return sum(values, 0, values.length);
+    }
+
+    private static double sum(double[] values, int offset, int length) {
         double sum = 0.0;
-        for (int count : classes.values()) {
-            sum += count;
+        for (int i = offset; i < offset + length; i++) {
+            sum += values[i];
         }
+        return sum;
+    }
 
-        entropy = 0.0;
-        for (int count : classes.values()) {
-            entropy -= count / sum * log2(count / sum);
+    /**
+     * Returns the most common (or heaviest, if weighted) class value in the dataset. Ties are broken in favour
+     * of the class value that occurs first in the dataset.
+     * @return      the index in getClasses() of the most frequent class value
+     */
+    public int getMostFrequentClass() {
+        double[] counts = new double[classes.size()];
+        int[] firstSeen = new int[classes.size()];
+        Arrays.fill(firstSeen, -1);
+        int[] classCodes = codes[target];
+        for (int i = from; i < to; i++) {
+            int row = rowIndices[i];
+            int classValue = classCodes[row];
+            counts[classValue] += weightOf(row);
+            if (firstSeen[classValue] < 0) firstSeen[classValue] = i;
         }
 
-        return entropy;
+        int best = -1;
+        for (int classValue = 0; classValue < counts.length; classValue++) {
+            if (firstSeen[classValue] < 0) continue;
+            if (best < 0 || counts[classValue] > counts[best]
+                    || (counts[classValue] == counts[best] && firstSeen[classValue] < firstSeen[best])) {
+                best = classValue;
+            }
+        }
+        return best;
     }
 
     public static double log2(double value) {
@@ -261,19 +746,80 @@ public class Dataset {
     }
 
     /**
-     * Stores the unique attribute values and class values in uniqueAttributeValues and classes, respctively
+     * Dictionary-encodes the columns of the rows, numbering each column's distinct values in order of first appearance
+     * @param data      the rows (rows are examples, columns are attributes)
+     * @return          the distinct values of each column (indexed by code) and the code of every cell by column
+     */
+    private static Tuple<String[][], int[][]> indexStrings(String[][] data) {
+        int numAttributes = data[0].length;
+        String[][] uniqueAttributeValues = new String[numAttributes][];
+        int[][] codes = new int[numAttributes][data.length];
+        for (int col = 0; col < numAttributes; col++) {
+            Map<String, Integer> dictionary = new LinkedHashMap<>();
+            for (int row = 0; row < data.length; row++) {
+                Integer code = dictionary.get(data[row][col]);
+                if (code == null) {
+                    code = dictionary.size();
+                    dictionary.put(data[row][col], code);
+                }
+                codes[col][row] = code;
+            }
+            uniqueAttributeValues[col] = dictionary.keySet().toArray(new String[0]);
+        }
+        return new Tuple<>(uniqueAttributeValues, codes);
+    }
+
+    /**
+     * Builds the dictionary of each column and parses the continuous columns, so training and classification can work
+     * on primitive arrays. Continuous values are also ranked among the column's sorted distinct values, so continuous
+     * attributes can be ordered by comparing (and sorting) ints instead of doubles. Both are done once per distinct
+     * value (i.e. dictionary code) rather than once per cell.
      */
-    private void indexStrings() {
-        List<String[]> uniqueValues = new ArrayList<>();
-        for (int col=0; col<numAttributes; col++) {
-            List<String> uniqueColumn = getAttributeColumn(col).stream().distinct().collect(Collectors.toList());
-            uniqueValues.add(uniqueColumn.toArray(new String[0]));
-            if (col == target) {
-                classes = uniqueColumn;
+    private void encodeColumns() {
+        dictionaries = new ArrayList<>();
+        values = new double[numAttributes][];
+        sortedValues = new double[numAttributes][];
+        ranks = new int[numAttributes][];
+        for (int col = 0; col < numAttributes; col++) {
+            Map<String, Integer> dictionary = new HashMap<>();
+            String[] uniqueValues = uniqueAttributeValues[col];
+            for (int code = 0; code < uniqueValues.length; code++) {
+                dictionary.put(uniqueValues[code], code);
+            }
+            dictionaries.add(dictionary);
+
+            if (!isContinuous(col)) continue;
+            int[] column = codes[col];
+            boolean[] used = new boolean[uniqueValues.length];
+            for (int row = 0; row < numRows; row++) {
+                used[column[row]] = true;
+            }
+            double[] parsed = new double[uniqueValues.length];
+            double[] sorted = new double[uniqueValues.length];
+            int numUsed = 0;
+            for (int code = 0; code < uniqueValues.length; code++) {
+                parsed[code] = Double.parseDouble(uniqueValues[code]);
+                if (used[code]) sorted[numUsed++] = parsed[code];
+            }
+            // Distinct strings can parse to the same value (e.g. 1 and 1.0), so remove duplicates after sorting
+            Arrays.sort(sorted, 0, numUsed);
+            int distinct = 0;
+            for (int i = 0; i < numUsed; i++) {
+                if (i == 0 || Double.compare(sorted[i], sorted[distinct - 1]) != 0) sorted[distinct++] = sorted[i];
+            }
+            sortedValues[col] = Arrays.copyOf(sorted, distinct);
+            int[] rankOfCode = new int[uniqueValues.length];
+            for (int code = 0; code < uniqueValues.length; code++) {
+                rankOfCode[code] = Arrays.binarySearch(sortedValues[col], parsed[code]);
+            }
+
+            values[col] = new double[numRows];
+            ranks[col] = new int[numRows];
+            for (int row = 0; row < numRows; row++) {
+                values[col][row] = parsed[column[row]];
+                ranks[col][row] = rankOfCode[column[row]];
             }
         }
-        String[][] uniqueArray = new String[uniqueValues.size()][0];
-        uniqueAttributeValues = uniqueValues.toArray(uniqueArray);
     }
 
     @Override
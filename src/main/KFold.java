@@ -2,15 +2,20 @@ package main;
 
 import main.math.Statistics;
 import main.trees.ID3;
+import main.util.Util;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
 import java.util.stream.IntStream;
 
 public class KFold {
     int k;
     private Dataset dataset;
-    private Classifier classifier;
+    private Supplier<? extends Classifier> factory;    // creates the classifier trained on each fold
+    private boolean shared;                             // whether factory always returns the same classifier
+    private Long seed;                                  // seed for the shuffles and classifiers (null = unseeded)
 
     public KFold(int k) {
         this.k = k;
@@ -18,10 +23,26 @@ public class KFold {
 
     public void init(Dataset d, Classifier c) {
         dataset = d;
-        classifier = c;
+        factory = () -> c;
+        shared = true;
     }
 
-    static class Split {
+    /**
+     * Cross validates a new classifier from the factory on each fold, which lets the folds run in parallel
+     */
+    public void init(Dataset d, Supplier<? extends Classifier> f) {
+        dataset = d;
+        factory = f;
+        shared = false;
+    }
+
+    /**
+     * Makes cross validation reproducible: every repetition's shuffle and every fold's classifier are seeded from
+     * this seed, so the accuracies don't depend on whether the folds run sequentially or in parallel
+     */
+    public void setSeed(long seed) { this.seed = seed; }
+
+    public static class Split {
         private final int[] trainIndices;
         private final int[] testIndices;
 
@@ -54,8 +75,11 @@ public class KFold {
     }
 
     public static void shuffle(int[] array) {
+        shuffle(array, new Random());
+    }
+
+    public static void shuffle(int[] array, Random random) {
         int index;
-        Random random = new Random();
         for (int i = array.length - 1; i > 0; i--) {
             index = random.nextInt(i + 1);
             if (index != i) {
@@ -90,39 +114,89 @@ public class KFold {
     }
 
     public List<Double> crossValidate() {
-        // Step 1: Shuffle data (this shuffles the indices instead for better performance)
-        int numberOfExamples = dataset.getNumberOfExamples();
-        int[] indices = IntStream.range(0, numberOfExamples).toArray();
-        shuffle(indices);
-
-        // Step 2: Split into k folds
-        List<Split> folds = createKFolds(indices);
+        return crossValidate(1);
+    }
 
-        // Step 3: For each k-fold, train using other folds and test using single fold
+    /**
+     * Repeats k-fold cross validation on the calling thread
+     * @param repetitions   the number of times to shuffle the data and cross validate
+     * @return              the accuracy of every fold of every repetition
+     */
+    public List<Double> crossValidate(int repetitions) {
         List<Double> accuracies = new ArrayList<>();
-        List<String> classes = dataset.getClasses();
-        for (Split fold: folds) {
+        for (FoldTask task : createTasks(repetitions)) {
+            accuracies.add(task.call());
+        }
+        return accuracies;
+    }
+
+    /**
+     * Repeats k-fold cross validation with every fold of every repetition running as its own task on the executor.
+     * Needs a classifier factory (see init(Dataset, Supplier)), since the folds can't share a classifier.
+     * @param repetitions   the number of times to shuffle the data and cross validate
+     * @param executor      the executor to run the folds on (e.g. a ForkJoinPool)
+     * @return              the accuracy of every fold of every repetition, in the same order as crossValidate(int)
+     */
+    public List<Double> crossValidate(int repetitions, ExecutorService executor) {
+        if (shared) {
+            throw new IllegalStateException("Parallel cross validation needs a classifier factory");
+        }
+        return Util.invokeAll(executor, createTasks(repetitions));
+    }
+
+    /**
+     * Shuffles the data and splits it into k folds for each repetition. All seeds are drawn up front in order,
+     * so the tasks give the same results no matter how they are scheduled.
+     */
+    private List<FoldTask> createTasks(int repetitions) {
+        Random random = seed == null ? new Random() : new Random(seed);
+        List<FoldTask> tasks = new ArrayList<>();
+        for (int r = 0; r < repetitions; r++) {
+            // Step 1: Shuffle data (this shuffles the indices instead for better performance)
+            int numberOfExamples = dataset.getNumberOfExamples();
+            int[] indices = IntStream.range(0, numberOfExamples).toArray();
+            shuffle(indices, random);
+
+            // Step 2: Split into k folds
+            for (Split fold : createKFolds(indices)) {
+                tasks.add(new FoldTask(fold, seed == null ? null : random.nextLong()));
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Step 3: For a single fold, train using the other folds and test using the fold
+     */
+    private class FoldTask implements Callable<Double> {
+        private final Split fold;
+        private final Long seed;
+
+        FoldTask(Split fold, Long seed) {
+            this.fold = fold;
+            this.seed = seed;
+        }
+
+        @Override
+        public Double call() {
+            Classifier classifier = factory.get();
+            if (seed != null) classifier.setSeed(seed);
+
             int[] trainIdx = fold.getTrainIndices();
-            Dataset trainDataset = new Dataset(dataset, Arrays.stream(trainIdx).boxed().collect(Collectors.toList()));
+            Dataset trainDataset = dataset.sample(trainIdx);
             int[] testIdx = fold.getTestIndices();
-            Dataset testDataset = new Dataset(dataset, Arrays.stream(testIdx).boxed().collect(Collectors.toList()));
+            Dataset testDataset = dataset.sample(testIdx);
             // We use the test dataset for post pruning for ID3 (but not for ensemble methods)
             if (classifier instanceof ID3) ((ID3) classifier).setPruningDataset(testDataset);
 
             classifier.train(trainDataset);
-            String[] predictions = new String[testDataset.getNumberOfExamples()];
-            List<String[]> examples = testDataset.rows();
-            for (int i = 0; i < examples.size(); i++) {
-                String[] example = examples.get(i);
-                int prediction = classifier.classify(example);
-                String predictedClass = classes.get(prediction);
-                predictions[i] = predictedClass;
+            int[] predictions = classifier.classifyAll(testDataset);
+            int[] classValues = new int[testDataset.getNumberOfExamples()];
+            for (int i = 0; i < classValues.length; i++) {
+                classValues[i] = testDataset.getClassValue(i);
             }
-            accuracies.add(Statistics.computeAccuracy(examples, predictions, dataset.getTarget()));
+            return Statistics.computeAccuracy(classValues, predictions);
         }
-
-        return accuracies;
     }
 
-
 }
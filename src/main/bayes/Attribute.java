@@ -1,5 +1,7 @@
 package main.bayes;
 
+/**
+ * The distribution of one attribute among the examples of a class (see Discrete and Continuous)
+ */
 public interface Attribute {
-    double probability(String value);
 }
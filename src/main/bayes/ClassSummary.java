@@ -1,7 +1,5 @@
 package main.bayes;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 public class ClassSummary {
@@ -20,21 +18,14 @@ public class ClassSummary {
         return classValue;
     }
 
-    public double probability(String[] e, int target) {
-        List<Double> conditionalProbabilities = new ArrayList<>(Arrays.asList(new Double[attributes.size()]));
-        List<String> attrs = new ArrayList<>(Arrays.asList(e));
-        attrs.remove(target);
-        for (int i = 0; i < attributes.size(); i++) {
-            String attributeValue = attrs.get(i);
-            double probability = attributes.get(i).probability(attributeValue);
-            conditionalProbabilities.set(i, probability);
-        }
-        double product = 1.0;
-        for (Double conditionalProbability : conditionalProbabilities) {
-            product *= conditionalProbability;
-        }
-        return product * classProbability;
-    }
+    public double getClassProbability() { return classProbability; }
+
+    /**
+     * @param i     the index of the attribute, not counting the target column
+     * @return      the attribute's probability distribution for this class
+     */
+    public Attribute getAttribute(int i) { return attributes.get(i); }
 
+    public int getNumAttributes() { return attributes.size(); }
 
 }
@@ -1,45 +1,34 @@
 package main.bayes;
 
-import java.util.List;
-
 import static java.lang.Math.*;
 
 public class Continuous implements Attribute {
 
     private final double mean;
-    private final double standardDeviation;
-
-    public Continuous(List<String> values) {
-        this.mean = computeMean(values);
-        this.standardDeviation = computeStandardDeviation(values);
-    }
-
-    @Override
-    public double probability(String value) {
-        if (pow(standardDeviation, 2) == 0) {
-            return 0;
+    private final double logNormaliser;         // log(1 / (sqrt(2*PI) * standardDeviation))
+    private final double inverseTwoVariance;    // 1 / (2 * standardDeviation^2)
+
+    /**
+     * @param mean      the mean of the attribute among the class's examples
+     * @param variance  the (population) variance of the attribute among the class's examples
+     */
+    public Continuous(double mean, double variance) {
+        this.mean = mean;
+        double standardDeviation = sqrt(variance);
+        // A constant attribute gives every value probability 0, i.e. a log probability of -Infinity
+        if (standardDeviation == 0) {
+            this.logNormaliser = Double.NEGATIVE_INFINITY;
+            this.inverseTwoVariance = 0;
+        } else {
+            this.logNormaliser = -log(sqrt(2*PI) * standardDeviation);
+            this.inverseTwoVariance = 1 / (2 * standardDeviation * standardDeviation);
         }
-        double val = Double.parseDouble(value);
-        double exponent = java.lang.Math.exp(-pow(val-mean, 2)/(2*pow(standardDeviation, 2)));
-        return (1 / (sqrt(2*PI) * standardDeviation)) * exponent;
     }
 
-    private double computeMean(List<String> values) {
-        double sum = 0;
-        for (String val : values) {
-            sum += Double.parseDouble(val);
-        }
-        return sum/values.size();
-    }
+    public double getMean() { return mean; }
 
-    private double computeStandardDeviation(List<String> values) {
-        double variance = 0.0;
-        for (String value : values) {
-            double val = Double.parseDouble(value);
-            variance += Math.pow(val - mean, 2);
-        }
-        variance /= values.size();
-        return Math.sqrt(variance);
-    }
+    public double getLogNormaliser() { return logNormaliser; }
+
+    public double getInverseTwoVariance() { return inverseTwoVariance; }
 
 }
@@ -1,37 +1,28 @@
 package main.bayes;
 
-import main.util.Util;
-
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
 public class Discrete implements Attribute {
 
-    private final double unseenConditionalProbability;          // the unseen conditional probability
-    private final Map<String, Double> conditionalProbabilities; // the conditional probability of an attribute value
+    private final double[] logProbabilities;    // the log conditional probability of each value, indexed by code + 1 (0 = unseen)
 
-    public Discrete(List<String> values, int attributeCount) {
-        int valuesAttributeCount = values.size() + attributeCount;
+    /**
+     * @param frequencies           the frequency of each attribute value (indexed by code) among the class's examples
+     * @param numberOfExamples      the number of examples of the class
+     */
+    public Discrete(int[] frequencies, int numberOfExamples) {
+        int attributeCount = frequencies.length;
+        int valuesAttributeCount = numberOfExamples + attributeCount;
+        logProbabilities = new double[attributeCount + 1];
         // Compute the unseen conditional probability for attribute values that aren't encountered in training
-        unseenConditionalProbability = ((double)1)/(valuesAttributeCount);
-        // Get the frequency of each attribute value in the examples
-        Map<String, Integer> frequencyMap = Util.getFrequencyMap(values);
-        // Calculate the conditional probability for each attribute
-        conditionalProbabilities = new HashMap<>();
-        for (Map.Entry<String, Integer> entry: frequencyMap.entrySet()) {
-            double conditionalProbability = (((double)entry.getValue()+1)) / (valuesAttributeCount);
-            conditionalProbabilities.put(entry.getKey(), conditionalProbability);
+        logProbabilities[0] = Math.log(((double)1)/(valuesAttributeCount));
+        // Calculate the conditional probability for each attribute (values without examples get the unseen probability)
+        for (int code = 0; code < attributeCount; code++) {
+            logProbabilities[code + 1] = Math.log((((double)frequencies[code]+1)) / (valuesAttributeCount));
         }
     }
 
-    @Override
-    public double probability(String value) {
-        Double probability = conditionalProbabilities.get(value);
-        if (probability == null) {
-            conditionalProbabilities.put(value, unseenConditionalProbability);
-            probability = conditionalProbabilities.get(value);
-        }
-        return probability;
-    }
+    /**
+     * @return      the log conditional probability of each attribute value, indexed by its code + 1 so that unseen
+     *              values (code -1) look up the unseen probability at index 0
+     */
+    public double[] getLogProbabilities() { return logProbabilities; }
 }
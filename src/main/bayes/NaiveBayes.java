@@ -2,58 +2,216 @@ package main.bayes;
 
 import main.Classifier;
 import main.Dataset;
+import main.util.Util;
 
 import java.util.*;
-
-import static main.Dataset.CONTINUOUS;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 public class NaiveBayes implements Classifier {
     private static final String NAME = "Naïve Bayes";
+    private static final int BATCH_SIZE = 256;     // number of examples scored together by classifyAll()
+    private static final int TRAINING_BATCH_SIZE = 4096;   // number of examples accumulated by each training task
 
     private List<ClassSummary> summaries;
     private int target;
+    private Dataset trainingDataset;    // used to encode raw examples for classification
+    private SufficientStatistics statistics;    // the statistics of every example trained on so far
+    private ExecutorService executor;   // accumulates training statistics in parallel (null = calling thread)
+
+    // The summaries flattened into arrays for scoring in log space, indexed by summary then attribute (not counting
+    // the target column)
+    private int[] classValues;              // the class value of each summary
+    private double[] logPriors;             // the log probability of each class
+    private double[][][] logLikelihoods;    // log conditional probability of each code + 1 (null if continuous)
+    private double[][] means;               // the mean of each continuous attribute
+    private double[][] logNormalisers;      // the log of each continuous attribute's Gaussian normalising constant
+    private double[][] inverseTwoVariances; // 1 / (2 * variance) of each continuous attribute
+    private int[] columns;                  // the example index of each attribute (i.e. shifted past the target)
 
     public NaiveBayes() {}
 
+    public void setExecutor(ExecutorService executor) { this.executor = executor; }
+
     @Override
     public int classify(String[] example) {
-        ClassSummary maxSummary = null;
-        double maxProbability = -1;
-        for (ClassSummary summary : summaries) {
-            double probability = summary.probability(example, target);
-            if (maxSummary == null || probability > maxProbability) {
-                maxSummary = summary;
-                maxProbability = probability;
+        return classify(trainingDataset.encode(example));
+    }
+
+    @Override
+    public int classify(double[] example) {
+        int best = -1;
+        double maxScore = 0;
+        for (int s = 0; s < classValues.length; s++) {
+            double score = logPriors[s];
+            double[][] tables = logLikelihoods[s];
+            for (int i = 0; i < columns.length; i++) {
+                double value = example[columns[i]];
+                if (tables[i] != null) {
+                    score += tables[i][(int) value + 1];
+                } else {
+                    double deviation = value - means[s][i];
+                    score += logNormalisers[s][i] - deviation * deviation * inverseTwoVariances[s][i];
+                }
+            }
+            if (best < 0 || score > maxScore) {
+                best = s;
+                maxScore = score;
+            }
+        }
+        return classValues[best];
+    }
+
+    /**
+     * Scores the examples in batches, one attribute column at a time, so each class's attribute distribution is
+     * applied to the whole batch before moving on to the next. The log probabilities are summed in the same order as
+     * classify(), so the predictions are identical.
+     */
+    @Override
+    public void classifyAll(Dataset dataset, int[] predictions) {
+        int numberOfExamples = dataset.getNumberOfExamples();
+        int numSummaries = classValues.length;
+        int[] rows = new int[BATCH_SIZE];
+        double[] scores = new double[BATCH_SIZE * numSummaries];
+        for (int start = 0; start < numberOfExamples; start += BATCH_SIZE) {
+            int size = Math.min(BATCH_SIZE, numberOfExamples - start);
+            for (int k = 0; k < size; k++) {
+                rows[k] = dataset.getRowIndex(start + k);
+                System.arraycopy(logPriors, 0, scores, k * numSummaries, numSummaries);
+            }
+            for (int i = 0; i < columns.length; i++) {
+                int attribute = columns[i];
+                if (dataset.isContinuous(attribute)) {
+                    double[] values = dataset.getValues(attribute);
+                    for (int s = 0; s < numSummaries; s++) {
+                        double mean = means[s][i];
+                        double logNormaliser = logNormalisers[s][i];
+                        double inverseTwoVariance = inverseTwoVariances[s][i];
+                        for (int k = 0; k < size; k++) {
+                            double deviation = values[rows[k]] - mean;
+                            scores[k * numSummaries + s] += logNormaliser - deviation * deviation * inverseTwoVariance;
+                        }
+                    }
+                } else {
+                    int[] codes = dataset.getCodes(attribute);
+                    for (int s = 0; s < numSummaries; s++) {
+                        double[] table = logLikelihoods[s][i];
+                        for (int k = 0; k < size; k++) {
+                            scores[k * numSummaries + s] += table[codes[rows[k]] + 1];
+                        }
+                    }
+                }
+            }
+
+            for (int k = 0; k < size; k++) {
+                int best = 0;
+                for (int s = 1; s < numSummaries; s++) {
+                    if (scores[k * numSummaries + s] > scores[k * numSummaries + best]) best = s;
+                }
+                predictions[start + k] = classValues[best];
             }
         }
-        assert maxSummary != null;
-        return maxSummary.getClassValue();
     }
 
     @Override
     public void train(Dataset dataset) {
-        summaries = new ArrayList<>();
+        trainingDataset = dataset;
         target = dataset.getTarget();
-        Map<Integer, Dataset> separated = dataset.splitByClass();
+        statistics = accumulate(dataset);
+        summarize();
+    }
 
-        for(Map.Entry<Integer, Dataset> entry : separated.entrySet()) {
-            List<Attribute> attributes = new ArrayList<>();
+    /**
+     * Adds more examples to the ones the classifier was trained on, without revisiting the earlier examples
+     * @param dataset   the new examples, which must share the training dataset's dictionaries (e.g. a slice of it)
+     */
+    public void update(Dataset dataset) {
+        statistics.merge(accumulate(dataset));
+        summarize();
+    }
+
+    /**
+     * Gathers the statistics of the dataset's examples in batches that run in parallel on the executor, and merges
+     * them in order
+     */
+    private SufficientStatistics accumulate(Dataset dataset) {
+        int numberOfExamples = dataset.getNumberOfExamples();
+        List<Callable<SufficientStatistics>> tasks = new ArrayList<>();
+        for (int start = 0; start < numberOfExamples; start += TRAINING_BATCH_SIZE) {
+            int from = start;
+            int to = Math.min(start + TRAINING_BATCH_SIZE, numberOfExamples);
+            tasks.add(() -> {
+                SufficientStatistics partial = new SufficientStatistics(dataset);
+                partial.add(dataset, from, to);
+                return partial;
+            });
+        }
+        SufficientStatistics total = new SufficientStatistics(dataset);
+        for (SufficientStatistics partial : Util.invokeAll(executor, tasks)) {
+            total.merge(partial);
+        }
+        return total;
+    }
 
-            int classValue = entry.getKey();
-            Dataset d = entry.getValue();
-            double classProbability = ((double) d.getNumberOfExamples()) / dataset.getNumberOfExamples();
+    /**
+     * Rebuilds the class summaries from the statistics (skipping classes without examples, which can never be
+     * predicted)
+     */
+    private void summarize() {
+        summaries = new ArrayList<>();
+        int numberOfExamples = 0;
+        for (int c = 0; c < statistics.getNumClasses(); c++) {
+            numberOfExamples += statistics.getClassCount(c);
+        }
+        for (int c = 0; c < statistics.getNumClasses(); c++) {
+            int count = statistics.getClassCount(c);
+            if (count == 0) continue;
+            List<Attribute> attributes = new ArrayList<>();
+            for (int i = 0; i < statistics.getNumAttributes(); i++) {
+                int[] frequencies = statistics.getFrequencies(c, i);
+                if (frequencies == null) {
+                    attributes.add(new Continuous(statistics.getMean(c, i), statistics.getVariance(c, i)));
+                } else {
+                    attributes.add(new Discrete(frequencies, count));
+                }
+            }
+            summaries.add(new ClassSummary(c, ((double) count) / numberOfExamples, attributes));
+        }
+        compile();
+    }
 
-            for(int j = 0; j < d.getNumAttributes(); j++) {
-                int numAttributeValues = d.getUniqueAttributeValues()[j].length;
-                if (j == target) continue;
-                List<String> attributeValues = d.getAttributeColumn(j);
-                if (d.getType() == CONTINUOUS) {
-                    attributes.add(new Continuous(attributeValues));
+    /**
+     * Copies the log prior, log likelihood tables and Gaussian constants out of the summaries into the arrays
+     * that classify() and classifyAll() score with
+     */
+    private void compile() {
+        int numSummaries = summaries.size();
+        int numAttributes = statistics.getNumAttributes();
+        classValues = new int[numSummaries];
+        logPriors = new double[numSummaries];
+        logLikelihoods = new double[numSummaries][numAttributes][];
+        means = new double[numSummaries][numAttributes];
+        logNormalisers = new double[numSummaries][numAttributes];
+        inverseTwoVariances = new double[numSummaries][numAttributes];
+        columns = new int[numAttributes];
+        for (int i = 0; i < numAttributes; i++) {
+            columns[i] = i < target ? i : i + 1;
+        }
+        for (int s = 0; s < numSummaries; s++) {
+            ClassSummary summary = summaries.get(s);
+            classValues[s] = summary.getClassValue();
+            logPriors[s] = Math.log(summary.getClassProbability());
+            for (int i = 0; i < numAttributes; i++) {
+                Attribute attribute = summary.getAttribute(i);
+                if (attribute instanceof Discrete) {
+                    logLikelihoods[s][i] = ((Discrete) attribute).getLogProbabilities();
                 } else {
-                    attributes.add(new Discrete(attributeValues, numAttributeValues));
+                    Continuous continuous = (Continuous) attribute;
+                    means[s][i] = continuous.getMean();
+                    logNormalisers[s][i] = continuous.getLogNormaliser();
+                    inverseTwoVariances[s][i] = continuous.getInverseTwoVariance();
                 }
             }
-            summaries.add(new ClassSummary(classValue, classProbability, attributes));
         }
     }
 
@@ -0,0 +1,125 @@
+package main.bayes;
+
+import main.Dataset;
+
+/**
+ * The statistics Naive Bayes is trained from: for each class, the number of examples, the frequency of each discrete
+ * attribute value, and the mean and sum of squared deviations of each continuous attribute (accumulated with
+ * Welford's update). Statistics gathered over different examples can be merged, so they can be accumulated in
+ * parallel and updated with new examples.
+ */
+public class SufficientStatistics {
+
+    private final int[] columns;                // the dataset column of each attribute (i.e. skipping the target)
+    private final int[] classCounts;            // the number of examples of each class
+    private final int[][][] frequencies;        // [class][attribute][code] value frequencies (null if continuous)
+    private final double[][] means;             // [class][attribute] mean of each continuous attribute
+    private final double[][] squaredDeviations; // [class][attribute] sum of squared deviations from the mean
+
+    /**
+     * Creates empty statistics shaped for the attributes and classes of the given dataset
+     * @param dataset   the dataset (or any dataset that shares its dictionaries)
+     */
+    public SufficientStatistics(Dataset dataset) {
+        int target = dataset.getTarget();
+        int numClasses = dataset.getClasses().size();
+        int numAttributes = dataset.getNumAttributes() - 1;
+        columns = new int[numAttributes];
+        for (int i = 0; i < numAttributes; i++) {
+            columns[i] = i < target ? i : i + 1;
+        }
+        classCounts = new int[numClasses];
+        frequencies = new int[numClasses][numAttributes][];
+        means = new double[numClasses][numAttributes];
+        squaredDeviations = new double[numClasses][numAttributes];
+        for (int c = 0; c < numClasses; c++) {
+            for (int i = 0; i < numAttributes; i++) {
+                if (!dataset.isContinuous(columns[i])) {
+                    frequencies[c][i] = new int[dataset.getUniqueAttributeValues()[columns[i]].length];
+                }
+            }
+        }
+    }
+
+    public int getNumClasses() { return classCounts.length; }
+
+    public int getNumAttributes() { return columns.length; }
+
+    public int getClassCount(int classValue) { return classCounts[classValue]; }
+
+    /**
+     * @return      the frequency of each code of the attribute among examples of the class, or null if continuous
+     */
+    public int[] getFrequencies(int classValue, int attribute) { return frequencies[classValue][attribute]; }
+
+    public double getMean(int classValue, int attribute) { return means[classValue][attribute]; }
+
+    /**
+     * @return      the (population) variance of the continuous attribute among examples of the class
+     */
+    public double getVariance(int classValue, int attribute) {
+        return squaredDeviations[classValue][attribute] / classCounts[classValue];
+    }
+
+    /**
+     * Adds the examples [from, to) of the dataset, reading one column at a time
+     * @param dataset   the examples
+     * @param from      the first example to add
+     * @param to        the end (exclusive) of the examples to add
+     */
+    public void add(Dataset dataset, int from, int to) {
+        int[] classOf = new int[to - from];
+        int[] rows = new int[to - from];
+        for (int k = 0; k < rows.length; k++) {
+            rows[k] = dataset.getRowIndex(from + k);
+            classOf[k] = dataset.getClassValue(from + k);
+        }
+        int[] counts = new int[classCounts.length];
+        for (int i = 0; i < columns.length; i++) {
+            if (dataset.isContinuous(columns[i])) {
+                // Welford's update, with the class counts as they were before these examples
+                double[] values = dataset.getValues(columns[i]);
+                System.arraycopy(classCounts, 0, counts, 0, counts.length);
+                for (int k = 0; k < rows.length; k++) {
+                    int c = classOf[k];
+                    double value = values[rows[k]];
+                    double delta = value - means[c][i];
+                    means[c][i] += delta / ++counts[c];
+                    squaredDeviations[c][i] += delta * (value - means[c][i]);
+                }
+            } else {
+                int[] codes = dataset.getCodes(columns[i]);
+                for (int k = 0; k < rows.length; k++) {
+                    frequencies[classOf[k]][i][codes[rows[k]]]++;
+                }
+            }
+        }
+        for (int c : classOf) {
+            classCounts[c]++;
+        }
+    }
+
+    /**
+     * Adds the statistics of other examples to these (using Chan et al.'s update for the means and deviations)
+     * @param other     statistics shaped for the same dataset
+     */
+    public void merge(SufficientStatistics other) {
+        for (int c = 0; c < classCounts.length; c++) {
+            int n = classCounts[c];
+            int m = other.classCounts[c];
+            if (m == 0) continue;
+            for (int i = 0; i < columns.length; i++) {
+                if (frequencies[c][i] != null) {
+                    for (int code = 0; code < frequencies[c][i].length; code++) {
+                        frequencies[c][i][code] += other.frequencies[c][i][code];
+                    }
+                } else {
+                    double delta = other.means[c][i] - means[c][i];
+                    means[c][i] += delta * m / (n + m);
+                    squaredDeviations[c][i] += other.squaredDeviations[c][i] + delta * delta * ((double) n * m / (n + m));
+                }
+            }
+            classCounts[c] = n + m;
+        }
+    }
+}
@@ -2,9 +2,11 @@ package main.ensemble;
 
 import main.Classifier;
 import main.Dataset;
-import main.math.Tuple;
+import main.math.AliasSampler;
+import main.trees.CompiledTree;
 import main.trees.ID3;
-import main.util.Util;
+import main.trees.PackedForest;
+import main.trees.Stump;
 
 import java.util.*;
 
@@ -13,51 +15,87 @@ import static java.lang.Math.log;
 
 public class AdaBoost implements Classifier {
     private static final String NAME = "AdaBoost";
+    private static final int EARLY_EXIT_INTERVAL = 8;  // number of trees classify() votes with between early exit checks
 
     private final ID3 algorithm;
     private List<String> classes;
     private List<Double> alphas;
-    private List<ID3> decisionTrees;
+    private List<CompiledTree> decisionTrees;
+    private PackedForest forest;        // decisionTrees packed for batch classification (null until prepareVoting())
+    private Stump[] stumps;             // lookup table of each tree that is a stump (null entries for deeper trees)
+    private double[] voteWeights;       // alphas as primitives
+    private double[] remainingAlpha;    // the total absolute alpha of trees j and later, at remainingAlpha[j]
+    private Dataset trainingDataset;    // used to encode raw examples for classification
     private final double proportionOfSamples;
     private final int numEstimators;
+    private final boolean reweight;     // train every tree on all examples with their weights instead of a weighted sample
     private static final Double EPSILON = 0.001;
+    private Random random = new Random();
 
     public AdaBoost(ID3 algorithm, int numEstimators, double proportionOfSamples) {
         this.algorithm = algorithm;
         this.numEstimators = numEstimators;
         this.proportionOfSamples = proportionOfSamples;
+        this.reweight = false;
+    }
+
+    /**
+     * Creates an AdaBoost classifier that trains every tree on the full dataset, weighting each example by its
+     * boosting weight instead of resampling the examples in proportion to their weights
+     */
+    public AdaBoost(ID3 algorithm, int numEstimators) {
+        this.algorithm = algorithm;
+        this.numEstimators = numEstimators;
+        this.proportionOfSamples = 1.0;
+        this.reweight = true;
     }
 
     @Override
     public void train(Dataset dataset) {
+        decisionTrees = null;
+        alphas = null;
+        forest = null;
         classes = dataset.getClasses();
+        trainingDataset = dataset;
         int classCount = classes.size();
-        List<String[]> data = dataset.rows();
-        int totalNumberExamples = data.size();
+        int totalNumberExamples = dataset.getNumberOfExamples();
+        int[] classValues = new int[totalNumberExamples];
+        for (int k = 0; k < totalNumberExamples; k++) {
+            classValues[k] = dataset.getClassValue(k);
+        }
         int numberOfSamples = (int)(dataset.getNumberOfExamples() * proportionOfSamples);
-        List<Double> weights = new ArrayList<>(Arrays.asList(new Double[totalNumberExamples]));
-        Collections.fill(weights, 1.0/totalNumberExamples);
-        int target = dataset.getTarget();
+        double[] weights = new double[totalNumberExamples];
+        Arrays.fill(weights, 1.0/totalNumberExamples);
+        if (reweight) {
+            // Every tree trains on the same examples, so they are binned or presorted only once, and every round
+            // updates the weights of the same view
+            dataset = algorithm.prepare(dataset).weight(weights);
+        } else if (algorithm.getMaxBins() > 0) {
+            // Quantise continuous attributes once for all trees if they search pivots over histograms
+            dataset = dataset.bin(algorithm.getMaxBins());
+        }
 
+        int[] predictions = new int[totalNumberExamples];
         for (int i = 0; i < numEstimators; i++) {
-            // Sample with replacement to create new training set
-            List<Integer> indices = Util.generateIndices(weights, numberOfSamples);
-            Dataset weightedDataset = new Dataset(dataset, indices);
             ID3 id3 = algorithm.createTree();
-            id3.train(weightedDataset);
+            if (reweight) {
+                dataset.setWeights(weights);
+                id3.train(dataset);
+            } else {
+                // Sample with replacement to create new training set
+                int[] indices = new AliasSampler(weights).sample(numberOfSamples, random);
+                id3.train(dataset.sample(indices));
+            }
 
             // Predict using weak learner and calculate weight sum as well as error sum using predictions
             double errorSum = 0.0;
             double weightSum = 0.0;
-            String[] predictions = new String[weights.size()];
+            id3.classifyAll(trainingDataset, predictions);
             for (int k = 0; k < totalNumberExamples; k++) {
-                String prediction = classes.get(id3.classify(data.get(k)));
-                String actual = data.get(k)[target];
-                if (!actual.equals(prediction)) {
-                    errorSum += weights.get(k);
+                if (classValues[k] != predictions[k]) {
+                    errorSum += weights[k];
                 }
-                weightSum += weights.get(k);
-                predictions[k] = prediction;
+                weightSum += weights[k];
             }
 
             // Compute error
@@ -72,59 +110,114 @@ public class AdaBoost implements Classifier {
 
             // Update weights
             weightSum = 0.0;
-            for (int k = 0; k < weights.size(); k++) {
-                double weight = weights.get(k);
-                if (!data.get(k)[target].equals(predictions[k])) {
-                    weights.set(k, weight * exp(alpha));
+            for (int k = 0; k < weights.length; k++) {
+                if (classValues[k] != predictions[k]) {
+                    weights[k] *= exp(alpha);
                 }
-                weightSum += weights.get(k);
+                weightSum += weights[k];
 
             }
 
             // Normalize weights
-            for (int k = 0; k < weights.size(); k++) {
-                weights.set(k, weights.get(k)/weightSum);
+            for (int k = 0; k < weights.length; k++) {
+                weights[k] /= weightSum;
             }
 
             // Add classifier and alpha to lists
             add(id3, alpha);
         }
+        prepareVoting();
     }
 
     @Override
     public int classify(String[] example) {
-            Map<Integer, Double> probabilities = new LinkedHashMap<>();
-            // Take a weighted "vote" for each possible class
-            for (int i = 0; i < classes.size(); i++) {
-                for (int j = 0; j < decisionTrees.size(); j++) {
-                    Integer classification = decisionTrees.get(j).classify(example);
-                    Double probability = probabilities.computeIfAbsent(classification, k -> 0.0);
-                    probability += alphas.get(j);
-                    probabilities.replace(classification, probability);
-                }
-            }
-            // Return the class with the largest "vote"
-            Tuple<Integer, Double> max = null;
-            for (Map.Entry<Integer, Double> probability : probabilities.entrySet()) {
-                if (max == null || max.second() < probability.getValue()) {
-                    max = new Tuple<>(probability.getKey(), probability.getValue());
-                }
-            }
+        return classify(trainingDataset.encode(example));
+    }
 
-            return max.first();
+    /**
+     * Takes a weighted "vote" of the trees for the example's class, stopping early once the votes of the remaining
+     * trees can no longer change the winner. Ties go to the class that the earliest tree voted for.
+     */
+    @Override
+    public int classify(double[] example) {
+        if (forest == null) prepareVoting();
+        double[] votes = new double[classes.size()];
+        int[] firstVoter = new int[classes.size()];
+        Arrays.fill(firstVoter, Integer.MAX_VALUE);
+        for (int j = 0; j < voteWeights.length; j++) {
+            int classValue = stumps[j] != null ? stumps[j].classify(example) : decisionTrees.get(j).classify(example);
+            votes[classValue] += voteWeights[j];
+            if (firstVoter[classValue] > j) firstVoter[classValue] = j;
+            if ((j + 1) % EARLY_EXIT_INTERVAL == 0 && isDecided(votes, firstVoter, remainingAlpha[j + 1])) break;
+        }
+        return winner(votes, firstVoter);
     }
 
+    /**
+     * Classifies every example in the dataset with the alpha-weighted votes of the trees packed into one forest.
+     * Ties go to the class that the earliest tree voted for, as in classify().
+     */
+    @Override
+    public void classifyAll(Dataset dataset, int[] predictions) {
+        if (forest == null) prepareVoting();
+        forest.classifyAll(dataset, predictions);
+    }
+
+    /**
+     * Builds the lookup tables and packed forest that classify() and classifyAll() vote with
+     */
+    private void prepareVoting() {
+        int numTrees = decisionTrees.size();
+        stumps = new Stump[numTrees];
+        voteWeights = new double[numTrees];
+        remainingAlpha = new double[numTrees + 1];
+        for (int j = numTrees - 1; j >= 0; j--) {
+            CompiledTree tree = decisionTrees.get(j);
+            if (Stump.isStump(tree)) stumps[j] = new Stump(tree);
+            voteWeights[j] = alphas.get(j);
+            remainingAlpha[j] = remainingAlpha[j + 1] + Math.abs(voteWeights[j]);
+        }
+        forest = new PackedForest(decisionTrees, voteWeights, classes.size());
+    }
+
+    /**
+     * @return      whether the leading class is ahead of every other class by more than the remaining alpha
+     */
+    private static boolean isDecided(double[] votes, int[] firstVoter, double remainingAlpha) {
+        int leader = winner(votes, firstVoter);
+        for (int c = 0; c < votes.length; c++) {
+            if (c != leader && votes[leader] - votes[c] <= remainingAlpha) return false;
+        }
+        return true;
+    }
+
+    private static int winner(double[] votes, int[] firstVoter) {
+        int best = -1;
+        for (int c = 0; c < votes.length; c++) {
+            if (firstVoter[c] == Integer.MAX_VALUE) continue;
+            if (best < 0 || votes[c] > votes[best] || (votes[c] == votes[best] && firstVoter[c] < firstVoter[best])) {
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public void setSeed(long seed) { random = new Random(seed); }
+
     public void add(ID3 c, double alpha) {
         if(decisionTrees == null) {
             decisionTrees = new ArrayList<>();
             alphas = new ArrayList<>();
         }
-        decisionTrees.add(c);
+        decisionTrees.add(c.compile());
         alphas.add(alpha);
+        forest = null;
     }
 
     @Override
     public String toString() {
+        if (reweight) return NAME + "(estimators:"+numEstimators+", reweight)";
         return NAME + "(estimators:"+numEstimators+", proportion:"+proportionOfSamples+")";
     }
 
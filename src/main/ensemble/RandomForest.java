@@ -2,63 +2,110 @@ package main.ensemble;
 
 import main.Classifier;
 import main.Dataset;
+import main.math.Bootstrap;
+import main.trees.CompiledTree;
 import main.trees.ID3;
+import main.trees.PackedForest;
 import main.util.Util;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 public class RandomForest implements Classifier {
     private static final String NAME = "Random Forest";
+    private static final int BATCH_SIZE = 1024;     // number of examples classified by each task in classifyAll()
     private final ID3 algorithm;
     private final int numTrees;
     private final double proportionOfSamples;
-    private List<ID3> trees;
+    private final boolean poisson;      // draw each example a Poisson number of times instead of a multinomial sample
+    private PackedForest forest;
+    private Dataset trainingDataset;    // used to encode raw examples for classification
+    private Random random = new Random();
+    private ExecutorService executor;   // grows trees and classifies batches in parallel (null = calling thread)
 
     public RandomForest(ID3 algorithm, double proportionOfSamples, int numTrees) {
+        this(algorithm, proportionOfSamples, numTrees, false);
+    }
+
+    /**
+     * @param poisson   whether to bootstrap each tree's examples by drawing every example a Poisson(proportion)
+     *                  number of times (see Bootstrap.poissonCounts()) instead of drawing exactly proportion * n
+     *                  examples with replacement
+     */
+    public RandomForest(ID3 algorithm, double proportionOfSamples, int numTrees, boolean poisson) {
         this.algorithm = algorithm;
         this.proportionOfSamples = proportionOfSamples;
         this.numTrees = numTrees;
+        this.poisson = poisson;
     }
 
     public ID3 getAlgorithm() { return algorithm; }
 
+    public void setExecutor(ExecutorService executor) { this.executor = executor; }
+
     @Override
     public int classify(String[] example) {
-        List<Integer> predictions = new ArrayList<>(Arrays.asList(new Integer[trees.size()]));
-        for(int i = 0; i < trees.size(); i++) {
-            predictions.set(i, trees.get(i).classify(example));
-        }
+        return classify(trainingDataset.encode(example));
+    }
 
-        return Util.getMostFrequentElement(predictions);
+    @Override
+    public int classify(double[] example) {
+        return forest.classify(example);
+    }
+
+    /**
+     * Classifies every example in the dataset, in batches that run in parallel on the executor
+     */
+    @Override
+    public void classifyAll(Dataset dataset, int[] predictions) {
+        int numberOfExamples = dataset.getNumberOfExamples();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int start = 0; start < numberOfExamples; start += BATCH_SIZE) {
+            int from = start;
+            int to = Math.min(start + BATCH_SIZE, numberOfExamples);
+            tasks.add(() -> {
+                forest.classifyAll(dataset, from, to, predictions);
+                return null;
+            });
+        }
+        Util.invokeAll(executor, tasks);
     }
 
     @Override
     public void train(Dataset dataset) {
-        int numberOfSamples = (int) (dataset.getNumberOfExamples() * proportionOfSamples);
-        List<Double> weights = new ArrayList<>(Arrays.asList(new Double[dataset.getNumberOfExamples()]));
-        Collections.fill(weights, 1./dataset.getNumberOfExamples());
+        trainingDataset = dataset;
+        int numberOfExamples = dataset.getNumberOfExamples();
+        int numberOfSamples = (int) (numberOfExamples * proportionOfSamples);
+        // Quantise continuous attributes once for all trees if they search pivots over histograms
+        Dataset examples = algorithm.getMaxBins() > 0 ? dataset.bin(algorithm.getMaxBins()) : dataset;
 
+        // Each tree gets its own seeded source of randomness, so the forest is the same however the trees are scheduled
+        List<Callable<CompiledTree>> tasks = new ArrayList<>();
         for (int i = 0; i < numTrees; i++) {
-            List<Integer> indices = Util.generateIndices(weights, numberOfSamples);
-            Dataset weightedDataset = new Dataset(dataset, indices);
-            ID3 id3 = algorithm.createRandomTree();
-            id3.train(weightedDataset);
-            this.add(id3);
+            long seed = random.nextLong();
+            tasks.add(() -> {
+                Random treeRandom = new Random(seed);
+                int[] counts = poisson ? Bootstrap.poissonCounts(numberOfExamples, proportionOfSamples, treeRandom)
+                        : Bootstrap.multinomialCounts(numberOfExamples, numberOfSamples, treeRandom);
+                int[] indices = Bootstrap.toIndices(counts);
+                Dataset weightedDataset = examples.sample(indices);
+                ID3 id3 = algorithm.createRandomTree();
+                id3.setSeed(treeRandom.nextLong());
+                id3.train(weightedDataset);
+                return id3.compile();
+            });
         }
+        forest = new PackedForest(Util.invokeAll(executor, tasks), null, dataset.getClasses().size());
     }
 
-    public void add(ID3 tree) {
-        if(trees == null) {
-            trees = new ArrayList<>();
-        }
-        trees.add(tree);
-    }
+    @Override
+    public void setSeed(long seed) { random = new Random(seed); }
 
     @Override
     public String toString() {
-        return NAME + "(size:"+numTrees+", percentage:"+proportionOfSamples+")";
+        return NAME + "(size:"+numTrees+", percentage:"+proportionOfSamples+(poisson ? ", poisson" : "")+")";
     }
 }
@@ -0,0 +1,66 @@
+package main.math;
+
+import java.util.Random;
+
+/**
+ * Samples with Vose's alias method: O(n) to build, O(1) per draw. Each index i owns a column of height 1 that
+ * it fills up to probabilities[i], and the rest of the column belongs to aliases[i].
+ */
+public class AliasSampler implements Sampler {
+
+    private final double[] probabilities;   // probability of keeping index i when its column is drawn
+    private final int[] aliases;            // index drawn instead of i otherwise
+
+    public AliasSampler(double[] weights) {
+        int n = weights.length;
+        probabilities = new double[n];
+        aliases = new int[n];
+
+        double sum = 0.0;
+        for (double weight : weights) {
+            sum += weight;
+        }
+
+        // Scale weights so the average column height is 1 and sort the columns into under- and overfull stacks
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int numberSmall = 0;
+        int numberLarge = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / sum;
+            if (scaled[i] < 1.0) {
+                small[numberSmall++] = i;
+            } else {
+                large[numberLarge++] = i;
+            }
+        }
+
+        // Fill each underfull column with the excess of an overfull one
+        while (numberSmall > 0 && numberLarge > 0) {
+            int less = small[--numberSmall];
+            int more = large[--numberLarge];
+            probabilities[less] = scaled[less];
+            aliases[less] = more;
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+            if (scaled[more] < 1.0) {
+                small[numberSmall++] = more;
+            } else {
+                large[numberLarge++] = more;
+            }
+        }
+        // Whatever is left is full up to rounding error
+        while (numberLarge > 0) {
+            probabilities[large[--numberLarge]] = 1.0;
+        }
+        while (numberSmall > 0) {
+            probabilities[small[--numberSmall]] = 1.0;
+        }
+    }
+
+    @Override
+    public int next(Random random) {
+        int column = random.nextInt(probabilities.length);
+        return random.nextDouble() < probabilities[column] ? column : aliases[column];
+    }
+}
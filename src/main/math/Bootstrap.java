@@ -0,0 +1,67 @@
+package main.math;
+
+import java.util.Random;
+
+/**
+ * Unweighted bootstrap samples expressed as the number of times each example is drawn
+ */
+public class Bootstrap {
+
+    /**
+     * Draws numberOfSamples examples uniformly with replacement (i.e. a multinomial sample)
+     * @param numberOfExamples  the number of examples to draw from
+     * @param numberOfSamples   the number of examples to draw
+     * @param random            the source of randomness
+     * @return                  the number of times each example was drawn
+     */
+    public static int[] multinomialCounts(int numberOfExamples, int numberOfSamples, Random random) {
+        int[] counts = new int[numberOfExamples];
+        for (int i = 0; i < numberOfSamples; i++) {
+            counts[random.nextInt(numberOfExamples)]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Draws each example a Poisson(proportion) number of times, which approximates a multinomial sample of
+     * proportion * numberOfExamples examples while letting every example be drawn independently
+     * @param numberOfExamples  the number of examples to draw from
+     * @param proportion        the expected number of times each example is drawn
+     * @param random            the source of randomness
+     * @return                  the number of times each example was drawn
+     */
+    public static int[] poissonCounts(int numberOfExamples, double proportion, Random random) {
+        int[] counts = new int[numberOfExamples];
+        double limit = Math.exp(-proportion);
+        for (int i = 0; i < numberOfExamples; i++) {
+            // Knuth's method: count how many uniform draws it takes for their product to drop below e^-proportion
+            int count = 0;
+            double product = random.nextDouble();
+            while (product > limit) {
+                count++;
+                product *= random.nextDouble();
+            }
+            counts[i] = count;
+        }
+        return counts;
+    }
+
+    /**
+     * @param counts    the number of times each example was drawn
+     * @return          the drawn examples, in order, with each repeated as many times as it was drawn
+     */
+    public static int[] toIndices(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        int[] indices = new int[total];
+        int next = 0;
+        for (int i = 0; i < counts.length; i++) {
+            for (int j = 0; j < counts[i]; j++) {
+                indices[next++] = i;
+            }
+        }
+        return indices;
+    }
+}
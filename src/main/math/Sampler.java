@@ -0,0 +1,24 @@
+package main.math;
+
+import java.util.Random;
+
+/**
+ * Draws indices 0..n-1 with replacement, each with probability proportional to its weight
+ */
+public interface Sampler {
+
+    int next(Random random);
+
+    /**
+     * @param numberOfIndices   the number of indices to draw
+     * @param random            the source of randomness
+     * @return                  the drawn indices
+     */
+    default int[] sample(int numberOfIndices, Random random) {
+        int[] indices = new int[numberOfIndices];
+        for (int i = 0; i < numberOfIndices; i++) {
+            indices[i] = next(random);
+        }
+        return indices;
+    }
+}
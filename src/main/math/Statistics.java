@@ -13,6 +13,16 @@ public class Statistics {
         return ((double) correct) / predictions.length;
     }
 
+    public static double computeAccuracy(int[] classValues, int[] predictions) {
+        int correct = 0;
+        for (int i=0; i<predictions.length; i++) {
+            if (predictions[i] == classValues[i]) {
+                correct++;
+            }
+        }
+        return ((double) correct) / predictions.length;
+    }
+
     public static double computeAverage(List<Double> values) {
         double mean = 0.0;
         for (double value : values) {
@@ -0,0 +1,130 @@
+package main.neighbors;
+
+/**
+ * Brute-force Hamming distance nearest neighbour search over discrete attributes (dictionary codes), with every
+ * row packed into bit planes: word w of plane p holds bit p of the codes of attributes 64w to 64w+63. Two rows
+ * differ in an attribute if they differ in any of its bits, so the distance is the number of bits set in the OR
+ * over the planes of the XOR of the rows' words. Batches of queries are compared against blocks of rows at a time
+ * so that each block stays in cache for the whole batch.
+ */
+public class HammingScan implements NeighborIndex {
+    private static final int ROW_BLOCK = 1024;  // number of rows compared with a batch of queries at a time
+
+    private final int dimensions;
+    private final int[] numValues;      // the number of codes of each attribute
+    private final int planes;           // the number of bits per code
+    private final int words;            // the number of words per plane
+    private final int rowSize;          // planes * words
+    private final long[] rows;          // the encoded rows, rowSize words each
+    private final ThreadLocal<long[]> encodedQueries;   // scratch space for each thread's encoded queries
+
+    /**
+     * @param points        the attribute codes of the rows (row-major, dimensions codes each)
+     * @param dimensions    the number of attributes
+     * @param numValues     the number of codes of each attribute
+     */
+    public HammingScan(double[] points, int dimensions, int[] numValues) {
+        this.dimensions = dimensions;
+        this.numValues = numValues;
+        // Codes go up to numValues (inclusive), which stands for values that weren't seen in the training data
+        int maxCode = 1;
+        for (int values : numValues) {
+            maxCode = Math.max(maxCode, values);
+        }
+        planes = 32 - Integer.numberOfLeadingZeros(maxCode);
+        words = (dimensions + 63) / 64;
+        rowSize = planes * words;
+        encodedQueries = ThreadLocal.withInitial(() -> new long[rowSize]);
+
+        int n = points.length / dimensions;
+        rows = new long[n * rowSize];
+        double[] point = new double[dimensions];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(points, i * dimensions, point, 0, dimensions);
+            encode(point, rows, i * rowSize);
+        }
+    }
+
+    /**
+     * Packs the codes of a row into bit planes
+     * @param point     the attribute codes (-1 for values that weren't seen in the training data)
+     * @param into      the array to write the row's words to
+     * @param offset    the index of the row's first word in into
+     */
+    private void encode(double[] point, long[] into, int offset) {
+        for (int i = offset; i < offset + rowSize; i++) {
+            into[i] = 0;
+        }
+        for (int attribute = 0; attribute < dimensions; attribute++) {
+            int code = (int) point[attribute];
+            if (code < 0 || code >= numValues[attribute]) code = numValues[attribute];
+            long bit = 1L << (attribute & 63);
+            for (int plane = 0; plane < planes; plane++) {
+                if ((code & (1 << plane)) != 0) into[offset + plane * words + (attribute >>> 6)] |= bit;
+            }
+        }
+    }
+
+    @Override
+    public void search(double[] query, NeighborHeap heap) {
+        long[] encoded = encodeQuery(query);
+        int n = rows.length / rowSize;
+        for (int i = 0; i < n; i++) {
+            heap.offer(distance(encoded, 0, i * rowSize), i);
+        }
+    }
+
+    /**
+     * Encodes a query into this thread's scratch space
+     * @return      the encoded query, which stays valid until the thread's next query
+     */
+    long[] encodeQuery(double[] query) {
+        long[] encoded = encodedQueries.get();
+        encode(query, encoded, 0);
+        return encoded;
+    }
+
+    /**
+     * @return      the Hamming distance between a query encoded with encodeQuery() and the row at position i
+     */
+    int distance(long[] query, int i) {
+        return distance(query, 0, i * rowSize);
+    }
+
+    @Override
+    public void searchAll(double[][] queries, NeighborHeap[] heaps, int count) {
+        long[] encoded = encodedQueries.get();
+        if (encoded.length < count * rowSize) {
+            encoded = new long[count * rowSize];
+            encodedQueries.set(encoded);
+        }
+        for (int q = 0; q < count; q++) {
+            encode(queries[q], encoded, q * rowSize);
+        }
+
+        int n = rows.length / rowSize;
+        for (int start = 0; start < n; start += ROW_BLOCK) {
+            int end = Math.min(start + ROW_BLOCK, n);
+            for (int q = 0; q < count; q++) {
+                NeighborHeap heap = heaps[q];
+                int queryOffset = q * rowSize;
+                for (int i = start; i < end; i++) {
+                    heap.offer(distance(encoded, queryOffset, i * rowSize), i);
+                }
+            }
+        }
+    }
+
+    private int distance(long[] query, int queryOffset, int rowOffset) {
+        int distance = 0;
+        for (int word = 0; word < words; word++) {
+            long different = 0;
+            for (int plane = 0; plane < planes; plane++) {
+                int index = plane * words + word;
+                different |= query[queryOffset + index] ^ rows[rowOffset + index];
+            }
+            distance += Long.bitCount(different);
+        }
+        return distance;
+    }
+}
@@ -0,0 +1,132 @@
+package main.neighbors;
+
+/**
+ * A KD-tree over a flat row-major matrix of points, for Euclidean nearest neighbour queries in a few dimensions.
+ * The tree is implicit: each range of points is split at its median along the dimension with the largest spread,
+ * the median point stays in the middle of the range and the two halves are split recursively until they are small
+ * enough to scan. The points are reordered so that every range is contiguous in memory.
+ */
+public class KDTree implements NeighborIndex {
+    private static final int LEAF_SIZE = 8;     // ranges of at most this many points are scanned
+
+    private final int dimensions;
+    private final double[] points;      // the points in tree order (row-major)
+    private final int[] positions;      // the original position of each point
+    private final int[] splitAxes;      // the split dimension of the range whose median is at each position
+
+    /**
+     * @param points        the points (row-major, dimensions values each)
+     * @param dimensions    the number of dimensions
+     */
+    public KDTree(double[] points, int dimensions) {
+        this.dimensions = dimensions;
+        int n = points.length / dimensions;
+        positions = new int[n];
+        for (int i = 0; i < n; i++) {
+            positions[i] = i;
+        }
+        splitAxes = new int[n];
+        build(points, 0, n);
+
+        this.points = new double[points.length];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(points, positions[i] * dimensions, this.points, i * dimensions, dimensions);
+        }
+    }
+
+    private void build(double[] points, int from, int to) {
+        if (to - from <= LEAF_SIZE) return;
+        int axis = widestAxis(points, from, to);
+        int mid = (from + to) >>> 1;
+        select(points, from, to, mid, axis);
+        splitAxes[mid] = axis;
+        build(points, from, mid);
+        build(points, mid + 1, to);
+    }
+
+    private int widestAxis(double[] points, int from, int to) {
+        int widest = 0;
+        double maxSpread = -1;
+        for (int axis = 0; axis < dimensions; axis++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                double value = points[positions[i] * dimensions + axis];
+                if (value < min) min = value;
+                if (value > max) max = value;
+            }
+            if (max - min > maxSpread) {
+                maxSpread = max - min;
+                widest = axis;
+            }
+        }
+        return widest;
+    }
+
+    /**
+     * Reorders positions[from, to) so that the point at nth has the value it would have if the range were sorted
+     * along the axis, with no greater values before it and no smaller values after it (quickselect)
+     */
+    private void select(double[] points, int from, int to, int nth, int axis) {
+        int lo = from;
+        int hi = to - 1;
+        while (lo < hi) {
+            double pivot = points[positions[(lo + hi) >>> 1] * dimensions + axis];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (points[positions[i] * dimensions + axis] < pivot) i++;
+                while (points[positions[j] * dimensions + axis] > pivot) j--;
+                if (i <= j) {
+                    int temp = positions[i];
+                    positions[i++] = positions[j];
+                    positions[j--] = temp;
+                }
+            }
+            if (nth <= j) {
+                hi = j;
+            } else if (nth >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void search(double[] query, NeighborHeap heap) {
+        search(query, heap, 0, positions.length);
+    }
+
+    private void search(double[] query, NeighborHeap heap, int from, int to) {
+        if (to - from <= LEAF_SIZE) {
+            for (int i = from; i < to; i++) {
+                heap.offer(distance(query, i), positions[i]);
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        int axis = splitAxes[mid];
+        double difference = query[axis] - points[mid * dimensions + axis];
+        // Search the half the query falls in first, and the other half only if it could hold a nearer point
+        if (difference < 0) {
+            search(query, heap, from, mid);
+            heap.offer(distance(query, mid), positions[mid]);
+            if (-difference <= heap.worstDistance()) search(query, heap, mid + 1, to);
+        } else {
+            search(query, heap, mid + 1, to);
+            heap.offer(distance(query, mid), positions[mid]);
+            if (difference <= heap.worstDistance()) search(query, heap, from, mid);
+        }
+    }
+
+    private double distance(double[] query, int i) {
+        double sum = 0.0;
+        int offset = i * dimensions;
+        for (int axis = 0; axis < dimensions; axis++) {
+            double difference = query[axis] - points[offset + axis];
+            sum += difference * difference;
+        }
+        return Math.sqrt(sum);
+    }
+}
@@ -4,71 +4,253 @@ import main.Classifier;
 import main.Dataset;
 import main.util.Util;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 public class KNN implements Classifier {
     private static final String NAME = "K-Nearest Neighbor";
+    private static final int KD_TREE_MAX_DIMENSIONS = 8;   // continuous data with more attributes uses a VP-tree
+    private static final int QUERY_BLOCK = 64;              // number of examples classifyAll() searches for at a time
+    private static final int BATCH_SIZE = 1024;             // number of examples classified by each task in classifyAll()
+    private static final double ONE_HOT_VALUE = Math.sqrt(0.5);     // coordinate of a one-hot encoded discrete value
 
     private final int k;
+    private final boolean indexed;  // whether continuous data is searched through a spatial index
+    private final int tables;       // the number of LSH tables (0 for exact search)
+    private final int hashes;       // the number of hash functions per LSH table
+    private final double width;     // the relative bucket width of the Euclidean LSH hash functions
+    private Random random = new Random();
     private Dataset dataset;
+    private int[] classValues;      // the class value of each training example
+    private int[] offsets;          // where each attribute starts in a point (-1 for the target)
+    private int[] oneHot;           // the number of values of each discrete attribute of mixed data (else 0)
+    private int dimensions;         // the length of a point
+    private NeighborIndex index;    // search structure over the training examples
+    private ThreadLocal<Query> scratch;     // each thread's scratch space for classifying a single example
+    private ExecutorService executor;   // classifies batches in parallel (null = calling thread)
 
     public KNN(int k) {
-        this.k = k;
+        this(k, true);
     }
 
+    /**
+     * @param k         the number of neighbours that vote (at least 1)
+     * @param indexed   whether to search continuous data through a KD-tree or VP-tree instead of scanning every
+     *                  training example
+     */
+    public KNN(int k, boolean indexed) {
+        this.k = checkK(k);
+        this.indexed = indexed;
+        this.tables = 0;
+        this.hashes = 0;
+        this.width = 0;
+    }
+
+    /**
+     * Creates a KNN classifier that searches approximately, through locality sensitive hashing (see LSHIndex)
+     * @param k         the number of neighbours that vote (at least 1)
+     * @param tables    the number of hash tables (more find more of the true nearest neighbours)
+     * @param hashes    the number of hash functions per table (more make the buckets smaller and queries faster)
+     * @param width     the bucket width for continuous data, relative to the spread of the training examples
+     *                  (narrower makes the buckets smaller and queries faster)
+     */
+    public KNN(int k, int tables, int hashes, double width) {
+        this.k = checkK(k);
+        this.indexed = true;
+        this.tables = tables;
+        this.hashes = hashes;
+        this.width = width;
+    }
+
+    /**
+     * @return      k, which must be at least 1 so that every query has a neighbour to vote (train() also rejects empty
+     *              training data)
+     */
+    private static int checkK(int k) {
+        if (k < 1) throw new IllegalArgumentException("k must be at least 1, but is " + k);
+        return k;
+    }
+
+    @Override
+    public void setSeed(long seed) { random = new Random(seed); }
+
+    /**
+     * Sets the executor that classifyAll() runs its batches on, e.g. a ForkJoinPool with the number of threads to
+     * use. The predictions don't depend on the executor.
+     */
+    public void setExecutor(ExecutorService executor) { this.executor = executor; }
+
     @Override
     public int classify(String[] example) {
-        List<String[]> data = dataset.rows();
-        Map<Double, Integer> distances = new TreeMap<>();
-        for (int i = 0; i < data.size(); i++) {
-            double distance = computeDistance(data.get(i), example);
-            distances.put(distance, i);
+        return classify(dataset.encode(example));
+    }
+
+    @Override
+    public int classify(double[] example) {
+        Query query = scratch.get();
+        query.set(example);
+        index.search(query.point, query.heap);
+        return query.vote();
+    }
+
+    /**
+     * @param example   example encoded with Dataset.encode() or Dataset.getExample()
+     * @return          the positions in the training dataset of the example's nearest neighbours, nearest first
+     */
+    public int[] getNearestNeighbors(double[] example) {
+        Query query = scratch.get();
+        query.set(example);
+        index.search(query.point, query.heap);
+        return Arrays.copyOf(query.nearest, query.heap.drainSorted(query.nearest));
+    }
+
+    /**
+     * Classifies every example in the dataset, in batches that run in parallel on the executor. Every query is
+     * answered on its own, so the predictions are the same however the batches are scheduled.
+     */
+    @Override
+    public void classifyAll(Dataset dataset, int[] predictions) {
+        int numberOfExamples = dataset.getNumberOfExamples();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int start = 0; start < numberOfExamples; start += BATCH_SIZE) {
+            int from = start;
+            int to = Math.min(start + BATCH_SIZE, numberOfExamples);
+            tasks.add(() -> {
+                classifyAll(dataset, from, to, predictions);
+                return null;
+            });
+        }
+        Util.invokeAll(executor, tasks);
+    }
+
+    /**
+     * Classifies the examples at positions [from, to) of the dataset in blocks, reusing the same scratch space
+     * for every block
+     */
+    private void classifyAll(Dataset dataset, int from, int to, int[] predictions) {
+        Query[] queries = new Query[QUERY_BLOCK];
+        double[][] points = new double[QUERY_BLOCK][];
+        NeighborHeap[] heaps = new NeighborHeap[QUERY_BLOCK];
+        for (int q = 0; q < QUERY_BLOCK; q++) {
+            queries[q] = new Query();
+            points[q] = queries[q].point;
+            heaps[q] = queries[q].heap;
         }
 
-        int i = 0;
-        List<Integer> votes = new ArrayList<>();
-        for(Map.Entry<Double, Integer> entry : distances.entrySet()) {
-            if(i >= k) {
-                break;
+        double[] example = new double[dataset.getNumAttributes()];
+        for (int start = from; start < to; start += QUERY_BLOCK) {
+            int count = Math.min(QUERY_BLOCK, to - start);
+            for (int q = 0; q < count; q++) {
+                queries[q].set(dataset.getExample(start + q, example));
             }
+            index.searchAll(points, heaps, count);
+            for (int q = 0; q < count; q++) {
+                predictions[start + q] = queries[q].vote();
+            }
+        }
+    }
 
-            int index = entry.getValue();
-            int classValue = dataset.getClasses().indexOf(data.get(index)[dataset.getTarget()]);
-            votes.add(classValue);
+    /**
+     * Scratch space for finding the k nearest training examples of one example and taking their majority vote.
+     * Ties in distance go to the example that comes first in the training data, and ties in the vote go to the
+     * class of the nearest neighbour among the tied classes.
+     */
+    private class Query {
+        final double[] point = new double[dimensions];     // the example without its target (see toPoint())
+        final NeighborHeap heap = new NeighborHeap(k);
+        final int[] nearest = new int[k];       // the positions of the nearest neighbours, nearest first
+        final int[] votes = new int[k];         // the class value of each of the nearest neighbours
+        final int[] counts = new int[dataset.getClasses().size()];
 
-            i++;
+        void set(double[] example) {
+            toPoint(example, point, 0);
+            heap.clear();
         }
 
-        return Util.getMostFrequentElement(votes);
-
+        int vote() {
+            int count = heap.drainSorted(nearest);
+            for (int i = 0; i < count; i++) {
+                votes[i] = classValues[nearest[i]];
+            }
+            return Util.getMostFrequentElement(votes, count, counts.length, counts);
+        }
     }
 
     @Override
     public void train(Dataset dataset) {
+        int numberOfExamples = dataset.getNumberOfExamples();
+        if (numberOfExamples == 0) throw new IllegalArgumentException("Can't train KNN without training examples");
         this.dataset = dataset;
-    }
+        int numAttributes = dataset.getNumAttributes();
+        classValues = new int[numberOfExamples];
+        // Mixed data is compared with Euclidean distance, with each discrete attribute one-hot encoded (see toPoint())
+        offsets = new int[numAttributes];
+        oneHot = new int[numAttributes];
+        dimensions = 0;
+        for (int col = 0; col < numAttributes; col++) {
+            offsets[col] = col == dataset.getTarget() ? -1 : dimensions;
+            if (col == dataset.getTarget()) continue;
+            if (dataset.getType() == Dataset.MIXED && !dataset.isContinuous(col)) {
+                oneHot[col] = dataset.getUniqueAttributeValues()[col].length;
+            }
+            dimensions += Math.max(1, oneHot[col]);
+        }
+        // Flat row-major matrix of the encoded attribute values, without the target attribute
+        double[] points = new double[numberOfExamples * dimensions];
+        double[] example = new double[numAttributes];
+        for (int i = 0; i < numberOfExamples; i++) {
+            toPoint(dataset.getExample(i, example), points, i * dimensions);
+            classValues[i] = dataset.getClassValue(i);
+        }
 
-    private double computeDistance(String[] e1, String[] e2) {
-        double distance = 0;
-        if (dataset.getType() == Dataset.DISCRETE) { // Hamming distance
-            for (int i = 0; i < e1.length; i++) {
-                if (i == dataset.getTarget()) continue;
-                int error = e1[i].equals(e2[i]) ? 0 : 1;
-                distance += error;
+        int[] numValues = null;     // the number of codes of each attribute of discrete data (Hamming distance)
+        if (dataset.getType() == Dataset.DISCRETE) {
+            numValues = new int[dimensions];
+            for (int col = 0, j = 0; col < numAttributes; col++) {
+                if (col != dataset.getTarget()) numValues[j++] = dataset.getUniqueAttributeValues()[col].length;
             }
-        } else { // Euclidean distance
-            double sum = 0.0;
-            for (int i = 0; i < e1.length; i++) {
-                if (i == dataset.getTarget()) continue;
-                sum += Math.pow(Double.parseDouble(e1[i]) - Double.parseDouble(e2[i]), 2);
+        }
+        if (tables > 0) {
+            index = new LSHIndex(points, dimensions, numValues, tables, hashes, width, random);
+        } else if (numValues != null) { // Hamming distance
+            index = new HammingScan(points, dimensions, numValues);
+        } else if (!indexed) { // Euclidean distance
+            index = new LinearScan(points, dimensions);
+        } else if (dimensions <= KD_TREE_MAX_DIMENSIONS) {
+            index = new KDTree(points, dimensions);
+        } else {
+            index = new VPTree(points, dimensions);
+        }
+        // Sized for this training data, so a new one per training
+        scratch = ThreadLocal.withInitial(Query::new);
+    }
+
+    /**
+     * Copies an encoded example into points[offset, offset + dimensions) without its target. A discrete attribute of
+     * mixed data becomes one coordinate per value, set to sqrt(1/2) for the example's value and 0 for the others,
+     * so that a mismatch adds 1 to the squared distance (like a difference of 1 in a continuous attribute); unseen
+     * values (code -1) set none of them.
+     */
+    private void toPoint(double[] example, double[] points, int offset) {
+        for (int col = 0; col < example.length; col++) {
+            if (offsets[col] < 0) continue;
+            if (oneHot[col] == 0) {
+                points[offset + offsets[col]] = example[col];
+                continue;
             }
-            distance = Math.sqrt(sum);
+            Arrays.fill(points, offset + offsets[col], offset + offsets[col] + oneHot[col], 0);
+            int code = (int) example[col];
+            if (code >= 0) points[offset + offsets[col] + code] = ONE_HOT_VALUE;
         }
-        return distance;
     }
 
     @Override
     public String toString() {
-        return NAME + "(k:" + k + ")";
+        if (tables > 0) return NAME + "(k:" + k + ", LSH tables:" + tables + " hashes:" + hashes + " width:" + width + ")";
+        return NAME + "(k:" + k + (indexed ? "" : ", brute force") + ")";
     }
 }
@@ -0,0 +1,196 @@
+package main.neighbors;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Approximate nearest neighbour search with locality sensitive hashing. Each of the hash tables combines several
+ * hash functions that nearby points tend to agree on: random projections cut into buckets of a fixed width for
+ * Euclidean distance, and the codes of randomly sampled attributes for Hamming distance. A query is compared only
+ * with the points that share a bucket with it in at least one table. More tables raise the recall, more hashes per
+ * table (or narrower buckets) make the buckets smaller and the queries faster. If the buckets hold fewer than k
+ * points, the query falls back to scanning all of them. Hamming distances are computed over bit-packed rows (see
+ * HammingScan).
+ */
+public class LSHIndex implements NeighborIndex {
+    private final int dimensions;
+    private final double[] points;      // the points (row-major)
+    private final boolean hamming;      // Hamming distance over codes instead of Euclidean distance
+    private final HammingScan scan;     // the bit-packed points for Hamming distance (null for Euclidean distance)
+    private final int tables;           // the number of hash tables
+    private final int hashes;           // the number of hash functions per table
+    private final double width;         // the width of the buckets of the random projections
+    private final double[] projections; // the random direction of each Euclidean hash function (dimensions each)
+    private final double[] offsets;     // the random offset of each Euclidean hash function
+    private final int[] sampled;        // the sampled attribute of each Hamming hash function
+    private final long[][] buckets;     // the bucket key (high bits) and position (low bits) of every point, sorted
+    private final ThreadLocal<Scratch> scratch;     // each thread's scratch space for gathering candidates
+
+    /**
+     * @param points        the points (row-major, dimensions values each), or attribute codes for Hamming distance
+     * @param dimensions    the number of dimensions
+     * @param numValues     the number of codes of each attribute for Hamming distance, or null for Euclidean distance
+     * @param tables        the number of hash tables
+     * @param hashes        the number of hash functions combined in each table
+     * @param width         the bucket width of the random projections, relative to the root mean square
+     *                      distance of the points from their mean (ignored for Hamming distance)
+     * @param random        the source of randomness for the hash functions
+     */
+    public LSHIndex(double[] points, int dimensions, int[] numValues, int tables, int hashes, double width, Random random) {
+        this.dimensions = dimensions;
+        this.points = points;
+        this.hamming = numValues != null;
+        this.scan = hamming ? new HammingScan(points, dimensions, numValues) : null;
+        this.tables = tables;
+        this.hashes = hashes;
+        int n = points.length / dimensions;
+        scratch = ThreadLocal.withInitial(() -> new Scratch(n));
+
+        projections = new double[tables * hashes * dimensions];
+        offsets = new double[tables * hashes];
+        sampled = new int[tables * hashes];
+        if (hamming) {
+            this.width = 0;
+            for (int h = 0; h < sampled.length; h++) {
+                sampled[h] = random.nextInt(dimensions);
+            }
+        } else {
+            this.width = width * spread(points, dimensions);
+            for (int h = 0; h < offsets.length; h++) {
+                // Gaussian directions scaled so that projecting shrinks distances by a factor of about 1 on average
+                for (int d = 0; d < dimensions; d++) {
+                    projections[h * dimensions + d] = random.nextGaussian() / Math.sqrt(dimensions);
+                }
+                offsets[h] = random.nextDouble() * this.width;
+            }
+        }
+
+        buckets = new long[tables][n];
+        for (int table = 0; table < tables; table++) {
+            for (int i = 0; i < n; i++) {
+                buckets[table][i] = ((long) key(points, i * dimensions, table) << 32) | i;
+            }
+            Arrays.sort(buckets[table]);
+        }
+    }
+
+    /**
+     * @return      the root mean square distance of the points from their mean
+     */
+    private static double spread(double[] points, int dimensions) {
+        int n = points.length / dimensions;
+        double sum = 0.0;
+        for (int d = 0; d < dimensions; d++) {
+            double mean = 0.0;
+            for (int i = 0; i < n; i++) {
+                mean += points[i * dimensions + d];
+            }
+            mean /= n;
+            for (int i = 0; i < n; i++) {
+                double difference = points[i * dimensions + d] - mean;
+                sum += difference * difference;
+            }
+        }
+        double spread = Math.sqrt(sum / n);
+        return spread > 0 ? spread : 1.0;
+    }
+
+    /**
+     * @return      the bucket of the point starting at offset in the given table (the table's hashes mixed together)
+     */
+    private int key(double[] point, int offset, int table) {
+        int key = table;
+        for (int h = table * hashes; h < (table + 1) * hashes; h++) {
+            int hash;
+            if (hamming) {
+                hash = (int) point[offset + sampled[h]];
+            } else {
+                double dot = offsets[h];
+                for (int d = 0; d < dimensions; d++) {
+                    dot += projections[h * dimensions + d] * point[offset + d];
+                }
+                hash = (int) Math.floor(dot / width);
+            }
+            key = key * 0x9E3779B1 + hash;
+        }
+        return key;
+    }
+
+    @Override
+    public void search(double[] query, NeighborHeap heap) {
+        // Gather the points that share a bucket with the query in any table, once each
+        Scratch scratch = this.scratch.get();
+        int[] candidates = scratch.candidates;
+        int mark = scratch.nextMark();
+        int count = 0;
+        for (int table = 0; table < tables; table++) {
+            long key = (long) key(query, 0, table) << 32;
+            long[] sorted = buckets[table];
+            int i = Arrays.binarySearch(sorted, key);
+            if (i < 0) i = -i - 1;
+            for (; i < sorted.length && (sorted[i] & 0xFFFFFFFF00000000L) == key; i++) {
+                int candidate = (int) sorted[i];
+                if (scratch.marks[candidate] == mark) continue;
+                scratch.marks[candidate] = mark;
+                candidates[count++] = candidate;
+            }
+        }
+
+        // The heap orders equally distant points by position, so the order of the candidates doesn't matter
+        if (count < heap.capacity()) {
+            if (hamming) {
+                scan.search(query, heap);
+            } else {
+                for (int i = 0; i < points.length / dimensions; i++) {
+                    heap.offer(distance(query, i), i);
+                }
+            }
+        } else if (hamming) {
+            long[] encoded = scan.encodeQuery(query);
+            for (int i = 0; i < count; i++) {
+                heap.offer(scan.distance(encoded, candidates[i]), candidates[i]);
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                heap.offer(distance(query, candidates[i]), candidates[i]);
+            }
+        }
+    }
+
+    /**
+     * @return      the Euclidean distance between the query and the point at position i
+     */
+    private double distance(double[] query, int i) {
+        int offset = i * dimensions;
+        double sum = 0.0;
+        for (int d = 0; d < dimensions; d++) {
+            double difference = query[d] - points[offset + d];
+            sum += difference * difference;
+        }
+        return Math.sqrt(sum);
+    }
+
+    /**
+     * Scratch space for one thread's queries. A point is gathered for a query at most once, which is tracked by
+     * marking it with a number that is different for every query, so the marks never have to be cleared.
+     */
+    private static class Scratch {
+        final int[] candidates;     // the points gathered for the current query
+        final int[] marks;          // the mark of the last query that gathered each point
+        int mark;                   // the mark of the current query
+
+        Scratch(int n) {
+            candidates = new int[n];
+            marks = new int[n];
+        }
+
+        int nextMark() {
+            if (++mark == 0) {
+                // The marks have wrapped around, so old marks could be mistaken for new ones
+                Arrays.fill(marks, 0);
+                mark = 1;
+            }
+            return mark;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package main.neighbors;
+
+/**
+ * Brute-force Euclidean nearest neighbour search that computes the distance to every point
+ */
+public class LinearScan implements NeighborIndex {
+    private final int dimensions;
+    private final double[] points;      // the points (row-major)
+
+    /**
+     * @param points        the points (row-major, dimensions values each)
+     * @param dimensions    the number of dimensions
+     */
+    public LinearScan(double[] points, int dimensions) {
+        this.dimensions = dimensions;
+        this.points = points;
+    }
+
+    @Override
+    public void search(double[] query, NeighborHeap heap) {
+        for (int i = 0; i < points.length / dimensions; i++) {
+            double sum = 0.0;
+            int offset = i * dimensions;
+            for (int axis = 0; axis < dimensions; axis++) {
+                double difference = query[axis] - points[offset + axis];
+                sum += difference * difference;
+            }
+            heap.offer(Math.sqrt(sum), i);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package main.neighbors;
+
+/**
+ * A bounded max-heap of the k nearest candidates seen so far, ordered by distance and then by row position, so
+ * that of two equally distant rows the one that comes first in the training data is the nearer.
+ */
+public class NeighborHeap {
+    private final double[] distances;
+    private final int[] positions;
+    private int size;
+
+    public NeighborHeap(int k) {
+        distances = new double[k];
+        positions = new int[k];
+    }
+
+    public void clear() { size = 0; }
+
+    public int size() { return size; }
+
+    public int capacity() { return distances.length; }
+
+    /**
+     * @return      the distance a candidate has to beat to enter the heap (infinite until the heap is full)
+     */
+    public double worstDistance() {
+        return size < distances.length ? Double.POSITIVE_INFINITY : distances[0];
+    }
+
+    /**
+     * Adds the candidate if the heap isn't full yet or if it is nearer than the farthest candidate in the heap
+     * @param distance  the candidate's distance to the query
+     * @param position  the candidate's position in the training data
+     */
+    public void offer(double distance, int position) {
+        if (size < distances.length) {
+            int i = size++;
+            // Sift up
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!isFarther(distance, position, distances[parent], positions[parent])) break;
+                distances[i] = distances[parent];
+                positions[i] = positions[parent];
+                i = parent;
+            }
+            distances[i] = distance;
+            positions[i] = position;
+        } else if (size > 0 && isFarther(distances[0], positions[0], distance, position)) {
+            siftDown(distance, position);
+        }
+    }
+
+    /**
+     * Empties the heap into the given array, nearest candidate first
+     * @param nearest   array of at least size() elements that receives the candidates' positions
+     * @return          the number of candidates
+     */
+    public int drainSorted(int[] nearest) {
+        int count = size;
+        while (size > 0) {
+            nearest[size - 1] = positions[0];
+            size--;
+            if (size > 0) siftDown(distances[size], positions[size]);
+        }
+        return count;
+    }
+
+    /**
+     * Replaces the root of the heap with the given candidate and restores the heap order
+     */
+    private void siftDown(double distance, int position) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && isFarther(distances[child + 1], positions[child + 1], distances[child], positions[child])) {
+                child++;
+            }
+            if (!isFarther(distances[child], positions[child], distance, position)) break;
+            distances[i] = distances[child];
+            positions[i] = positions[child];
+            i = child;
+        }
+        distances[i] = distance;
+        positions[i] = position;
+    }
+
+    private static boolean isFarther(double distance1, int position1, double distance2, int position2) {
+        return distance1 > distance2 || (distance1 == distance2 && position1 > position2);
+    }
+}
@@ -0,0 +1,25 @@
+package main.neighbors;
+
+/**
+ * A search structure over the training examples that answers exact k nearest neighbour queries
+ */
+public interface NeighborIndex {
+    /**
+     * Offers every training example that could be among the query's nearest neighbours to the heap
+     * @param query     the query's attribute values (without the target attribute)
+     * @param heap      the heap that collects the nearest neighbours
+     */
+    void search(double[] query, NeighborHeap heap);
+
+    /**
+     * Searches for the nearest neighbours of a batch of queries
+     * @param queries   the queries' attribute values
+     * @param heaps     the heap that collects the nearest neighbours of each query
+     * @param count     the number of queries (from the start of queries)
+     */
+    default void searchAll(double[][] queries, NeighborHeap[] heaps, int count) {
+        for (int q = 0; q < count; q++) {
+            search(queries[q], heaps[q]);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package main.neighbors;
+
+/**
+ * A vantage point tree over a flat row-major matrix of points, for Euclidean nearest neighbour queries in more
+ * dimensions than a KD-tree handles well. Each range of points has its first point as the vantage point; the rest
+ * are split at the median distance from it into an inside half (no farther than the median) and an outside half
+ * (no nearer), and the triangle inequality rules out halves that can't hold a nearer neighbour. Like KDTree, the
+ * tree is implicit and the points are reordered so that every range is contiguous in memory.
+ */
+public class VPTree implements NeighborIndex {
+    private static final int LEAF_SIZE = 8;         // ranges of at most this many points are scanned
+    private static final double SLACK = 1e-9;       // slack (relative to the radius) so rounding never prunes a tie
+
+    private final int dimensions;
+    private final double[] points;      // the points in tree order (row-major)
+    private final int[] positions;      // the original position of each point
+    private final double[] radii;       // the median distance from the vantage point at the start of each range
+
+    /**
+     * @param points        the points (row-major, dimensions values each)
+     * @param dimensions    the number of dimensions
+     */
+    public VPTree(double[] points, int dimensions) {
+        this.dimensions = dimensions;
+        int n = points.length / dimensions;
+        positions = new int[n];
+        for (int i = 0; i < n; i++) {
+            positions[i] = i;
+        }
+        radii = new double[n];
+        build(points, new double[n], 0, n);
+
+        this.points = new double[points.length];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(points, positions[i] * dimensions, this.points, i * dimensions, dimensions);
+        }
+    }
+
+    private void build(double[] points, double[] distances, int from, int to) {
+        if (to - from <= LEAF_SIZE) return;
+        int vantage = positions[from];
+        for (int i = from + 1; i < to; i++) {
+            distances[i] = distance(points, vantage, points, positions[i]);
+        }
+        int mid = (from + 1 + to) >>> 1;
+        select(distances, from + 1, to, mid);
+        radii[from] = distances[mid];
+        build(points, distances, from + 1, mid);
+        build(points, distances, mid, to);
+    }
+
+    /**
+     * Reorders distances[from, to) (and positions along with them) so that distances[nth] has the value it would
+     * have if the range were sorted, with no greater distances before it and no smaller distances after it
+     */
+    private void select(double[] distances, int from, int to, int nth) {
+        int lo = from;
+        int hi = to - 1;
+        while (lo < hi) {
+            double pivot = distances[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (distances[i] < pivot) i++;
+                while (distances[j] > pivot) j--;
+                if (i <= j) {
+                    double distance = distances[i];
+                    distances[i] = distances[j];
+                    distances[j] = distance;
+                    int temp = positions[i];
+                    positions[i++] = positions[j];
+                    positions[j--] = temp;
+                }
+            }
+            if (nth <= j) {
+                hi = j;
+            } else if (nth >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void search(double[] query, NeighborHeap heap) {
+        search(query, heap, 0, positions.length);
+    }
+
+    private void search(double[] query, NeighborHeap heap, int from, int to) {
+        if (to - from <= LEAF_SIZE) {
+            for (int i = from; i < to; i++) {
+                heap.offer(distance(query, 0, points, i), positions[i]);
+            }
+            return;
+        }
+        double distance = distance(query, 0, points, from);
+        heap.offer(distance, positions[from]);
+        double radius = radii[from];
+        int mid = (from + 1 + to) >>> 1;
+        // Search the half the query falls in first, and the other half only if it could hold a nearer point
+        if (distance < radius) {
+            search(query, heap, from + 1, mid);
+            if (radius - distance - heap.worstDistance() <= SLACK * radius) search(query, heap, mid, to);
+        } else {
+            search(query, heap, mid, to);
+            if (distance - radius - heap.worstDistance() <= SLACK * radius) search(query, heap, from + 1, mid);
+        }
+    }
+
+    /**
+     * @return      the Euclidean distance between point i of points1 and point j of points2
+     */
+    private double distance(double[] points1, int i, double[] points2, int j) {
+        double sum = 0.0;
+        int offset1 = i * dimensions;
+        int offset2 = j * dimensions;
+        for (int axis = 0; axis < dimensions; axis++) {
+            double difference = points1[offset1 + axis] - points2[offset2 + axis];
+            sum += difference * difference;
+        }
+        return Math.sqrt(sum);
+    }
+}
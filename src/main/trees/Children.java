@@ -15,7 +15,9 @@ public abstract class Children implements Iterable<TreeNode> {
 
     abstract public int size();
     abstract public void split(List<Dataset> datasets);
-    abstract public int predict(List<String> example);
+    abstract public int predict(double[] example);
+    abstract public int predict(Dataset dataset, int row);
     abstract public TreeNode get(int i);
+    abstract int route(Dataset dataset, int row);   // the index (see get()) of the child the row is passed down to
     public List<Integer> getAttributes() { return attributes; }
 }
@@ -0,0 +1,114 @@
+package main.trees;
+
+import main.Dataset;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A trained decision tree flattened into parallel arrays (one entry per node, in breadth first order) so that
+ * classifying an example is a tight loop over primitive arrays instead of a walk over TreeNode and Children
+ * objects. The children of a node are stored next to each other starting at firstChild: a continuous node has
+ * two (under, over) and a discrete node has one per attribute value, indexed by the value's dictionary code.
+ */
+public class CompiledTree {
+    final int[] attributes;     // the attribute each node splits on (-1 for leaves)
+    final boolean[] discrete;   // whether the node splits on a discrete attribute
+    final double[] pivots;      // the pivot of each continuous node
+    final int[] firstChild;     // the index of each node's first child
+    final int[] numChildren;    // the number of children of each node
+    final int[] predictions;    // the class prediction of each node (used at leaves and for unseen values)
+
+    public CompiledTree(TreeNode root) {
+        // Number the nodes breadth first, so that the children of every node get consecutive indices
+        List<TreeNode> nodes = new ArrayList<>();
+        nodes.add(root);
+        for (int i = 0; i < nodes.size(); i++) {
+            TreeNode node = nodes.get(i);
+            if (node.isLeaf()) continue;
+            for (TreeNode child : node.children) {
+                nodes.add(child);
+            }
+        }
+
+        int size = nodes.size();
+        attributes = new int[size];
+        discrete = new boolean[size];
+        pivots = new double[size];
+        firstChild = new int[size];
+        numChildren = new int[size];
+        predictions = new int[size];
+        int next = 1;
+        for (int i = 0; i < size; i++) {
+            TreeNode node = nodes.get(i);
+            predictions[i] = node.getPrediction();
+            if (node.isLeaf()) {
+                attributes[i] = -1;
+                continue;
+            }
+            Children children = node.children;
+            attributes[i] = node.getAttribute();
+            discrete[i] = children instanceof DiscreteChildren;
+            if (!discrete[i]) pivots[i] = ((ContinuousChildren) children).getPivot();
+            firstChild[i] = next;
+            numChildren[i] = children.size();
+            next += numChildren[i];
+        }
+    }
+
+    /**
+     * @param example   example encoded with Dataset.encode() or Dataset.getExample()
+     * @return          the predicted class value
+     */
+    public int classify(double[] example) {
+        int node = 0;
+        while (attributes[node] >= 0) {
+            double value = example[attributes[node]];
+            if (discrete[node]) {
+                int code = (int) value;
+                // Attribute values that weren't seen in the training data (code -1) get the parent's prediction
+                if (code < 0 || code >= numChildren[node]) return predictions[node];
+                node = firstChild[node] + code;
+            } else {
+                node = firstChild[node] + (value < pivots[node] ? 0 : 1);
+            }
+        }
+        return predictions[node];
+    }
+
+    /**
+     * Classifies every example in the dataset by reading its attribute columns directly
+     * @param dataset       a dataset with the same columns as the training dataset
+     * @param predictions   array that receives the predicted class value of each example
+     */
+    public void classifyAll(Dataset dataset, int[] predictions) {
+        int numAttributes = dataset.getNumAttributes();
+        int[][] codes = new int[numAttributes][];
+        double[][] values = new double[numAttributes][];
+        for (int col = 0; col < numAttributes; col++) {
+            if (dataset.isContinuous(col)) {
+                values[col] = dataset.getValues(col);
+            } else {
+                codes[col] = dataset.getCodes(col);
+            }
+        }
+
+        for (int i = 0; i < dataset.getNumberOfExamples(); i++) {
+            int row = dataset.getRowIndex(i);
+            int node = 0;
+            while (attributes[node] >= 0) {
+                if (discrete[node]) {
+                    node = firstChild[node] + codes[attributes[node]][row];
+                } else {
+                    node = firstChild[node] + (values[attributes[node]][row] < pivots[node] ? 0 : 1);
+                }
+            }
+            predictions[i] = this.predictions[node];
+        }
+    }
+
+    /**
+     * @return      the number of nodes in the tree
+     */
+    public int size() { return attributes.length; }
+}
@@ -17,6 +17,8 @@ public class ContinuousChildren extends Children {
         over = new TreeNode(parent);
     }
 
+    double getPivot() { return pivot; }
+
     @Override
     public int size() {
         return 2;
@@ -29,15 +31,29 @@ public class ContinuousChildren extends Children {
     }
 
     @Override
-    public int predict(List<String> example) {
+    public int predict(double[] example) {
         int attribute = parent.getAttribute();
-        if (Double.parseDouble(example.get(attribute)) < pivot) {
+        if (example[attribute] < pivot) {
             return under.classify(example);
         } else {
             return over.classify(example);
         }
     }
 
+    @Override
+    public int predict(Dataset dataset, int row) {
+        if (dataset.getValues(parent.getAttribute())[row] < pivot) {
+            return under.classify(dataset, row);
+        } else {
+            return over.classify(dataset, row);
+        }
+    }
+
+    @Override
+    int route(Dataset dataset, int row) {
+        return dataset.getValues(parent.getAttribute())[row] < pivot ? 0 : 1;
+    }
+
     @Override
     public TreeNode get(int i) {
         return i == 0 ? under : over;
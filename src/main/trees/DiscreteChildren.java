@@ -1,34 +1,32 @@
 package main.trees;
 
 import main.Dataset;
-import main.math.Tuple;
 
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
 public class DiscreteChildren extends Children {
 
-    private final List<Tuple<String, TreeNode>> nodes; // list of (attribute value, corresponding tree node)
+    private final TreeNode[] nodes; // tree node for each attribute value (indexed by the value's dictionary code)
 
-    public DiscreteChildren(TreeNode parent, List<String> values, List<Integer> attributes) {
+    public DiscreteChildren(TreeNode parent, int numValues, List<Integer> attributes) {
         super(parent, attributes);
-        this.nodes = new ArrayList<>();
-        for (String value : values) {
-            this.nodes.add(new Tuple<>(value, new TreeNode(parent)));
+        this.nodes = new TreeNode[numValues];
+        for (int i = 0; i < numValues; i++) {
+            this.nodes[i] = new TreeNode(parent);
         }
         this.parent = parent;
     }
 
     @Override
     public int size() {
-        return nodes.size();
+        return nodes.length;
     }
 
     @Override
     public void split(List<Dataset> datasets) {
-        for (int i = 0; i < nodes.size(); i++) {
-            TreeNode node = nodes.get(i).second();
+        for (int i = 0; i < nodes.length; i++) {
+            TreeNode node = nodes[i];
             // If there's no examples, then below this new branch add a leaf node
             // with label = most common target value in the examples
             if (datasets.get(i).isEmpty()) {
@@ -41,22 +39,28 @@ public class DiscreteChildren extends Children {
     }
 
     @Override
-    public int predict(List<String> example) {
-        int attribute = parent.getAttribute();
-        for (Tuple<String, TreeNode> entry : nodes) {
-            String value = entry.first();
-            TreeNode child = entry.second();
-            if (example.get(attribute).equals(value)) {
-                return child.classify(example);
-            }
+    public int predict(double[] example) {
+        int code = (int) example[parent.getAttribute()];
+        // Attribute values that weren't seen in the training data (code -1) get the parent's prediction
+        if (code < 0 || code >= nodes.length) {
+            return parent.getPrediction();
         }
+        return nodes[code].classify(example);
+    }
+
+    @Override
+    public int predict(Dataset dataset, int row) {
+        return nodes[dataset.getCodes(parent.getAttribute())[row]].classify(dataset, row);
+    }
 
-        return parent.getPrediction();
+    @Override
+    int route(Dataset dataset, int row) {
+        return dataset.getCodes(parent.getAttribute())[row];
     }
 
     @Override
     public TreeNode get(int i) {
-        return nodes.get(i).second();
+        return nodes[i];
     }
 
     @Override
@@ -66,7 +70,7 @@ public class DiscreteChildren extends Children {
 
             @Override
             public boolean hasNext() {
-                return index < nodes.size();
+                return index < nodes.length;
             }
 
             @Override
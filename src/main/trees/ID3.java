@@ -3,9 +3,8 @@ package main.trees;
 import main.Classifier;
 import main.Dataset;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -13,70 +12,140 @@ public class ID3 implements Classifier {
     private static final String NAME = "ID3";
     private Dataset pruningDataset;
     private TreeNode root;
+    private Dataset trainingDataset;    // used to encode raw examples for classification
     int maxLevel;
     int maxFeatures;
     int minNumberExamples;
+    boolean presorted;              // sort continuous attributes once at the root instead of at every node
+    int maxBins;                    // if > 0, bin continuous attributes and search pivots over per-node histograms
+    private Random random = new Random();
 
     public ID3() {
-        initialize(Integer.MAX_VALUE, -1, 1);
+        initialize(Integer.MAX_VALUE, -1, 1, false, 0);
     }
 
     public ID3(int maxLevel) {
-        initialize(maxLevel, -1, 1);
+        initialize(maxLevel, -1, 1, false, 0);
     }
 
     public ID3(int maxLevel, int minNumberExamples) {
-        initialize(maxLevel, -1, minNumberExamples);
+        initialize(maxLevel, -1, minNumberExamples, false, 0);
     }
 
     public ID3(int maxLevel, int maxFeatures, int minNumberExamples) {
-        initialize(maxLevel, maxFeatures, minNumberExamples);
+        initialize(maxLevel, maxFeatures, minNumberExamples, false, 0);
+    }
+
+    public ID3(int maxLevel, int maxFeatures, int minNumberExamples, boolean presorted) {
+        initialize(maxLevel, maxFeatures, minNumberExamples, presorted, 0);
+    }
+
+    public ID3(int maxLevel, int maxFeatures, int minNumberExamples, int maxBins) {
+        initialize(maxLevel, maxFeatures, minNumberExamples, false, maxBins);
     }
 
     public ID3 createTree() {
-        return new ID3(this.maxLevel, -1, this.minNumberExamples);
+        ID3 tree = new ID3(this.maxLevel, -1, this.minNumberExamples, this.presorted);
+        tree.maxBins = this.maxBins;
+        return tree;
     }
 
     public ID3 createRandomTree() {
-        return new ID3(this.maxLevel, this.maxFeatures, this.minNumberExamples);
+        ID3 tree = new ID3(this.maxLevel, this.maxFeatures, this.minNumberExamples, this.presorted);
+        tree.maxBins = this.maxBins;
+        return tree;
     }
 
-    private void initialize(int maxLevel, int m, int minNumberExamples) {
+    private void initialize(int maxLevel, int m, int minNumberExamples, boolean presorted, int maxBins) {
         root = null;
         this.maxLevel = maxLevel;
         this.maxFeatures = m;
         this.minNumberExamples = minNumberExamples;
+        this.presorted = presorted;
+        this.maxBins = maxBins;
+    }
+
+    public int getMaxBins() { return maxBins; }
+
+    /**
+     * Returns the dataset in the form this tree trains on (binned or presorted), so that ensembles which train many
+     * trees on the same examples only have to prepare it once
+     * @param dataset   the training dataset
+     * @return          the prepared dataset
+     */
+    public Dataset prepare(Dataset dataset) {
+        if (maxBins > 0) return dataset.bin(maxBins);
+        return presorted ? dataset.presort() : dataset;
     }
 
+    @Override
+    public void setSeed(long seed) { random = new Random(seed); }
+
     public void setPruningDataset(Dataset pruningDataset) { this.pruningDataset = pruningDataset; }
 
     public int classify(String[] example) {
-        return root.classify(new ArrayList<>(Arrays.asList(example)));
+        return classify(trainingDataset.encode(example));
+    }
+
+    public int classify(double[] example) {
+        return root.classify(example);
+    }
+
+    /**
+     * @return      the trained tree flattened into arrays for fast classification (see CompiledTree)
+     */
+    public CompiledTree compile() {
+        return new CompiledTree(root);
+    }
+
+    @Override
+    public void classifyAll(Dataset dataset, int[] predictions) {
+        for (int i = 0; i < dataset.getNumberOfExamples(); i++) {
+            predictions[i] = root.classify(dataset, dataset.getRowIndex(i));
+        }
     }
 
     public void train(Dataset dataset) {
+        trainingDataset = dataset;
         // Create new root for the decision tree
         if (maxFeatures > 0) {
-            root = new TreeNode(maxLevel, maxFeatures, minNumberExamples);
+            root = new TreeNode(maxLevel, maxFeatures, minNumberExamples, random);
         } else {
             root = new TreeNode(maxLevel);
         }
         // The indices of the attributes (minus the target attribute)
         List<Integer> attributes = IntStream.range(0, dataset.getNumAttributes()).boxed().collect(Collectors.toList());
         attributes.remove(Integer.valueOf(dataset.getTarget()));
-        // Split root node
-        root.split(dataset, attributes);
+        // Split root node (on a copy of the dataset's rows, since splitting reorders them in place)
+        if (maxBins > 0) {
+            root.split(new Dataset(dataset.bin(maxBins), dataset.getRowIndices()), attributes);
+        } else if (presorted) {
+            root.split(dataset.presort(), attributes);
+        } else {
+            root.split(new Dataset(dataset, dataset.getRowIndices()), attributes);
+        }
         // Apply reduced error pruning for ID3 only (not AdaBoost or Random Forest)
         if (pruningDataset != null) {
             Pruning pruning = new Pruning(pruningDataset, root);
-            pruning.pruneTree(root);
+            pruning.pruneTree();
         }
     }
 
+    /**
+     * Trains the tree on weighted examples, i.e. each example counts with its weight when choosing splits and leaf
+     * predictions instead of once
+     * @param dataset   the training dataset
+     * @param weights   the weight of each example in the dataset
+     */
+    public void train(Dataset dataset, double[] weights) {
+        train(dataset.weight(weights));
+    }
+
 
     @Override
     public String toString() {
-        return NAME;
+        if (maxBins > 0) return NAME + "(bins:" + maxBins + ")";
+        return presorted ? NAME + "(presorted)" : NAME;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,163 @@
+package main.trees;
+
+import main.Dataset;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An ensemble of compiled trees packed into one set of node arrays (the trees' CompiledTree arrays laid end to
+ * end), where each tree casts a weighted vote for its prediction. Batches are classified in blocks of rows: each
+ * block is copied into a row-major buffer and then run through a few trees at a time, so both the block's
+ * attribute values and the current trees' nodes stay in cache while the votes accumulate in a primitive buffer.
+ * Ties go to the class that the earliest tree voted for.
+ */
+public class PackedForest {
+    private static final int ROW_BLOCK = 64;        // number of rows classified together
+    private static final int TREE_BLOCK = 16;       // number of trees each block of rows runs through at a time
+
+    private final int[] roots;          // the index of each tree's root node
+    private final double[] weights;     // the weight of each tree's vote
+    private final int numClasses;
+    private final int[] attributes;     // node arrays of all trees, see CompiledTree
+    private final boolean[] discrete;
+    private final double[] pivots;
+    private final int[] firstChild;     // absolute index of each node's first child
+    private final int[] numChildren;
+    private final int[] predictions;
+
+    /**
+     * @param trees         the trees of the ensemble
+     * @param weights       the weight of each tree's vote (e.g. AdaBoost's alphas), or null for one vote each
+     * @param numClasses    the number of class values
+     */
+    public PackedForest(List<CompiledTree> trees, double[] weights, int numClasses) {
+        this.numClasses = numClasses;
+        this.roots = new int[trees.size()];
+        if (weights == null) {
+            weights = new double[trees.size()];
+            Arrays.fill(weights, 1.0);
+        }
+        this.weights = weights;
+
+        int size = 0;
+        for (int t = 0; t < trees.size(); t++) {
+            roots[t] = size;
+            size += trees.get(t).size();
+        }
+        attributes = new int[size];
+        discrete = new boolean[size];
+        pivots = new double[size];
+        firstChild = new int[size];
+        numChildren = new int[size];
+        predictions = new int[size];
+        for (int t = 0; t < trees.size(); t++) {
+            CompiledTree tree = trees.get(t);
+            int offset = roots[t];
+            int length = tree.size();
+            System.arraycopy(tree.attributes, 0, attributes, offset, length);
+            System.arraycopy(tree.discrete, 0, discrete, offset, length);
+            System.arraycopy(tree.pivots, 0, pivots, offset, length);
+            System.arraycopy(tree.numChildren, 0, numChildren, offset, length);
+            System.arraycopy(tree.predictions, 0, predictions, offset, length);
+            for (int i = 0; i < length; i++) {
+                firstChild[offset + i] = tree.firstChild[i] + offset;
+            }
+        }
+    }
+
+    public int getNumTrees() { return roots.length; }
+
+    /**
+     * @param example   example encoded with Dataset.encode() or Dataset.getExample()
+     * @return          the class with the largest weighted vote
+     */
+    public int classify(double[] example) {
+        double[] votes = new double[numClasses];
+        int[] firstVoter = new int[numClasses];
+        Arrays.fill(firstVoter, Integer.MAX_VALUE);
+        for (int t = 0; t < roots.length; t++) {
+            vote(votes, firstVoter, 0, t, predict(roots[t], example, 0));
+        }
+        return winner(votes, firstVoter, 0);
+    }
+
+    /**
+     * Classifies every example in the dataset (see classifyAll(Dataset, int, int, int[]))
+     */
+    public void classifyAll(Dataset dataset, int[] predictions) {
+        classifyAll(dataset, 0, dataset.getNumberOfExamples(), predictions);
+    }
+
+    /**
+     * Classifies the examples at positions [from, to) of the dataset
+     * @param dataset       a dataset with the same columns as the training dataset
+     * @param from          the position of the first example
+     * @param to            the position after the last example
+     * @param predictions   array that receives the predicted class value of each example, at the same positions
+     */
+    public void classifyAll(Dataset dataset, int from, int to, int[] predictions) {
+        int numAttributes = dataset.getNumAttributes();
+        double[] example = new double[numAttributes];
+        double[] examples = new double[ROW_BLOCK * numAttributes];
+        double[] votes = new double[ROW_BLOCK * numClasses];
+        int[] firstVoter = new int[ROW_BLOCK * numClasses];
+        for (int start = from; start < to; start += ROW_BLOCK) {
+            int size = Math.min(ROW_BLOCK, to - start);
+            // Copy the block's rows into a row-major buffer, since every tree reads them
+            for (int k = 0; k < size; k++) {
+                dataset.getExample(start + k, example);
+                System.arraycopy(example, 0, examples, k * numAttributes, numAttributes);
+            }
+            Arrays.fill(votes, 0.0);
+            Arrays.fill(firstVoter, Integer.MAX_VALUE);
+
+            for (int treeStart = 0; treeStart < roots.length; treeStart += TREE_BLOCK) {
+                int treeEnd = Math.min(treeStart + TREE_BLOCK, roots.length);
+                for (int k = 0; k < size; k++) {
+                    for (int t = treeStart; t < treeEnd; t++) {
+                        vote(votes, firstVoter, k * numClasses, t, predict(roots[t], examples, k * numAttributes));
+                    }
+                }
+            }
+
+            for (int k = 0; k < size; k++) {
+                predictions[start + k] = winner(votes, firstVoter, k * numClasses);
+            }
+        }
+    }
+
+    /**
+     * Walks a tree from its root for the example stored at offset in examples
+     */
+    private int predict(int node, double[] examples, int offset) {
+        while (attributes[node] >= 0) {
+            double value = examples[offset + attributes[node]];
+            if (discrete[node]) {
+                int code = (int) value;
+                // Attribute values that weren't seen in the training data (code -1) get the parent's prediction
+                if (code < 0 || code >= numChildren[node]) return predictions[node];
+                node = firstChild[node] + code;
+            } else {
+                node = firstChild[node] + (value < pivots[node] ? 0 : 1);
+            }
+        }
+        return predictions[node];
+    }
+
+    private void vote(double[] votes, int[] firstVoter, int offset, int tree, int classValue) {
+        votes[offset + classValue] += weights[tree];
+        if (firstVoter[offset + classValue] > tree) firstVoter[offset + classValue] = tree;
+    }
+
+    private int winner(double[] votes, int[] firstVoter, int offset) {
+        int best = -1;
+        for (int c = offset; c < offset + numClasses; c++) {
+            if (firstVoter[c] == Integer.MAX_VALUE) continue;
+            if (best < 0 || votes[c] > votes[best] || (votes[c] == votes[best] && firstVoter[c] < firstVoter[best])) {
+                best = c;
+            }
+        }
+        return best - offset;
+    }
+}
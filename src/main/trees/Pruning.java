@@ -1,65 +1,70 @@
 package main.trees;
 
 import main.Dataset;
-import main.math.Statistics;
 
-import java.util.Arrays;
-import java.util.List;
 
 public class Pruning {
 
     private final TreeNode root;                    // the root of the decision tree
-    private final List<String> classes;             // the list of unique class values
-    private final List<String[]> pruningExamples;   // the list of pruning examples
-    private double maxAccuracy;                     // the maximum accuracy obtained from classifying pruning exmaples
-    private final int target;                       // the target attribute column
+    private final Dataset pruningDataset;           // the pruning examples
+    private final int[] classCodes;                 // the class value of each row of the pruning dataset
+    private final int[] rows;                       // the pruning examples' rows, grouped by the node they reach
+    private final int[] buffer;                     // scratch space for regrouping rows among a node's children
 
     public Pruning(Dataset testDataset, TreeNode root) {
         this.root = root;
-        this.classes = testDataset.getClasses();
-        pruningExamples = testDataset.rows();
-        target = testDataset.getTarget();
-        maxAccuracy = getAccuracy();
+        this.pruningDataset = testDataset;
+        classCodes = testDataset.getCodes(testDataset.getTarget());
+        rows = testDataset.getRowIndices();
+        buffer = new int[rows.length];
     }
 
     /**
-     * Recursively prunes tree by removing each node one by one and checking if the resulting accuracy
-     * is greater than the accuracy of the original decision tree. If it is, then the remove is permanent.
-     * If not, pruneTree() is called on each of the node's children
-     *
-     * @param treeNode      a node in the decision tree
+     * Prunes the tree, replacing a node by a leaf if that classifies more of the pruning examples correctly than the
+     * node's original subtree does. Every pruning example is passed down the tree once, counting at each node how
+     * many of the examples reaching it the node would get right as a leaf and how many its subtree gets right, and
+     * the nodes are decided bottom-up from those counts. Since the examples reaching a node don't reach any node
+     * outside its subtree, this prunes the same nodes as removing each node one by one (from the root down) and
+     * keeping the removal if the accuracy of the whole tree increases.
      */
-    public void pruneTree(TreeNode treeNode) {
-        Children children = treeNode.children;
-        if (children == null) return;
-
-        treeNode.setLeaf(true);
-        double newAccuracy = getAccuracy();
+    public void pruneTree() {
+        prune(root, 0, rows.length);
+    }
 
-        if (newAccuracy > maxAccuracy) {
-            maxAccuracy = newAccuracy;
-            return;
+    /**
+     * Prunes the subtree of the node using the pruning examples in rows[from, to), i.e. the ones that reach it
+     * @return      the number of those examples that the node's original (unpruned) subtree classifies correctly
+     */
+    private int prune(TreeNode node, int from, int to) {
+        int leafCorrect = 0;
+        for (int i = from; i < to; i++) {
+            if (classCodes[rows[i]] == node.getPrediction()) leafCorrect++;
         }
+        if (node.isLeaf()) return leafCorrect;
 
-        treeNode.setLeaf(false);
-        for (TreeNode child : children) {
-            pruneTree(child);
+        // Group the rows by the child they are passed down to (counting sort), and count each child's correct examples
+        Children children = node.children;
+        int[] bounds = new int[children.size() + 1];
+        for (int i = from; i < to; i++) {
+            bounds[children.route(pruningDataset, rows[i]) + 1]++;
+        }
+        for (int c = 0; c < children.size(); c++) {
+            bounds[c + 1] += bounds[c];
+        }
+        int[] next = bounds.clone();
+        for (int i = from; i < to; i++) {
+            buffer[next[children.route(pruningDataset, rows[i])]++] = rows[i];
+        }
+        System.arraycopy(buffer, 0, rows, from, to - from);
+        int subtreeCorrect = 0;
+        for (int c = 0; c < children.size(); c++) {
+            subtreeCorrect += prune(children.get(c), from + bounds[c], from + bounds[c + 1]);
         }
 
-    }
-
-    /**
-     * Calculates the accuracy of the root's classifications on the list of pruning examples
-     * @return  accuracy value between 0 and 1
-     */
-    public double getAccuracy() {
-        String[] predictions = new String[pruningExamples.size()];
-        for (int i = 0; i < pruningExamples.size(); i++) {
-            String[] example = pruningExamples.get(i);
-            int prediction = root.classify(Arrays.asList(example));
-            predictions[i] = classes.get(prediction);
+        if (leafCorrect > subtreeCorrect) {
+            node.setLeaf(true);
         }
-        return Statistics.computeAccuracy(pruningExamples, predictions, target);
+        return subtreeCorrect;
     }
 
 }
@@ -0,0 +1,53 @@
+package main.trees;
+
+/**
+ * A compiled tree of depth at most one (a decision stump) as a lookup table from the value of its attribute to a
+ * class: indexed by dictionary code for a discrete attribute, or holding the under and over predictions for a
+ * continuous one.
+ */
+public class Stump {
+    private final int attribute;        // the attribute the stump splits on (-1 if it is a single leaf)
+    private final boolean discrete;     // whether the attribute is discrete
+    private final double pivot;         // the pivot of a continuous attribute
+    private final int[] table;          // the class predicted for each attribute value (or under, over)
+    private final int prediction;       // the root's prediction, for single leaves and unseen attribute values
+
+    /**
+     * @param tree  a compiled tree for which isStump() is true
+     */
+    public Stump(CompiledTree tree) {
+        attribute = tree.attributes[0];
+        discrete = tree.discrete[0];
+        pivot = tree.pivots[0];
+        prediction = tree.predictions[0];
+        table = new int[tree.numChildren[0]];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = tree.predictions[tree.firstChild[0] + i];
+        }
+    }
+
+    /**
+     * @return      whether every node of the tree other than the root is a leaf
+     */
+    public static boolean isStump(CompiledTree tree) {
+        for (int i = 1; i < tree.size(); i++) {
+            if (tree.attributes[i] >= 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param example   example encoded with Dataset.encode() or Dataset.getExample()
+     * @return          the predicted class value
+     */
+    public int classify(double[] example) {
+        if (attribute < 0) return prediction;
+        double value = example[attribute];
+        if (discrete) {
+            int code = (int) value;
+            // Attribute values that weren't seen in the training data (code -1) get the root's prediction
+            return code < 0 || code >= table.length ? prediction : table[code];
+        }
+        return table[value < pivot ? 0 : 1];
+    }
+}
@@ -2,13 +2,9 @@ package main.trees;
 
 import main.Dataset;
 import main.math.Tuple;
-import main.util.Util;
 
 import java.util.*;
 
-import static main.Dataset.CONTINUOUS;
-import static main.Dataset.DISCRETE;
-
 public class TreeNode {
     private int attribute;          // index of attribute value
     private boolean leaf;           // leaf or internal node?
@@ -17,21 +13,22 @@ public class TreeNode {
     private int level;              // current level of tree
     private int maxFeatures;        // number of attributes to select from for Random Forest
     private int minNumberExamples;  // minimum number of examples in each node
+    private Random random;          // source of randomness for picking random features
     Children children;              // children nodes
 
     public TreeNode(int maxLevel) {
-        this.initialize(0, maxLevel,-1, 1);
+        this.initialize(0, maxLevel,-1, 1, null);
     }
 
     public TreeNode(TreeNode parent) {
-        this.initialize(parent.level+1, parent.maxLevel, parent.maxFeatures, parent.minNumberExamples);
+        this.initialize(parent.level+1, parent.maxLevel, parent.maxFeatures, parent.minNumberExamples, parent.random);
     }
 
-    public TreeNode(int maxLevel, int m, int minNumberExamples) {
-        this.initialize(0, maxLevel, m, minNumberExamples);
+    public TreeNode(int maxLevel, int m, int minNumberExamples, Random random) {
+        this.initialize(0, maxLevel, m, minNumberExamples, random);
     }
 
-    private void initialize(int level, int maxLevel, int m, int minNumberExamples) {
+    private void initialize(int level, int maxLevel, int m, int minNumberExamples, Random random) {
         leaf = false;
         this.attribute = -1;
         this.prediction = -1;
@@ -39,12 +36,15 @@ public class TreeNode {
         this.level = level;
         this.maxFeatures = m;
         this.minNumberExamples = minNumberExamples;
+        this.random = random;
     }
 
     public int getAttribute() {
         return attribute;
     }
 
+    public boolean isLeaf() { return leaf; }
+
     public void setLeaf(boolean leaf) { this.leaf = leaf; }
 
     public int getPrediction() { return prediction; }
@@ -55,9 +55,8 @@ public class TreeNode {
 
     public void split(Dataset dataset, List<Integer> attributes) {
         double initialEntropy = dataset.entropy();
-        List<String> classes = dataset.getClasses();
         // Set this node's prediction to the most common class (i.e. target attribute value) in the examples
-        this.prediction = classes.indexOf(Util.getMostFrequentElement(dataset.getAttributeColumn(dataset.getTarget())));
+        this.prediction = dataset.getMostFrequentClass();
 
         // If we are the maximum depth, the dataset is perfectly classified, or there aren't enough examples then make node a leaf
         if (level == maxLevel || initialEntropy == 0 || dataset.getNumberOfExamples() <= Integer.max(1, minNumberExamples)) {
@@ -67,6 +66,7 @@ public class TreeNode {
 
         double minEntropy = -1;
         int bestAttribute = -1;
+        double bestPivot = 0;
 
         // If ID3 is being performed on a Random Forest tree node, select a set of random attributes to split with
         List<Integer> attributeIndices;
@@ -81,21 +81,20 @@ public class TreeNode {
         // resulting datasets (this is equivalent to calculating the maximum information gain for the current dataset)
         for (int attribute : attributeIndices) {
             double entropy = 0.0;
-            if (dataset.getType() == DISCRETE) {
-                Tuple<List<String>, List<Dataset>> subsets = dataset.splitByDiscreteAttribute(attribute);
-                entropy = Dataset.calculateWeightedEntropy(subsets.second());
-            } else if (dataset.getType() == CONTINUOUS) {
-                Tuple<Double, Tuple<Dataset, Dataset>> subsets = dataset.splitByContinuousAttribute(attribute);
-                if (subsets == null) continue;
-                entropy = Dataset.calculateWeightedEntropy(subsets.second());
+            double pivot = 0;
+            if (dataset.isContinuous(attribute)) {
+                Tuple<Double, Double> split = dataset.splitByContinuousAttribute(attribute);
+                if (split == null) continue;
+                pivot = split.first();
+                entropy = split.second();
             } else {
-                System.err.println("Unknown data type");
-                System.exit(-1);
+                entropy = dataset.calculateWeightedEntropy(attribute);
             }
 
             if(bestAttribute < 0 || entropy < minEntropy) {
                 minEntropy = entropy;
                 bestAttribute = attribute;
+                bestPivot = pivot;
             }
         }
 
@@ -115,23 +114,20 @@ public class TreeNode {
 
         // Create new children nodes, using the best attribute to split the training examples
         List<Dataset> subsets = new ArrayList<>();
-        if (dataset.getType() == CONTINUOUS) {
-            Tuple<Double, Tuple<Dataset, Dataset>> split = dataset.splitByContinuousAttribute(bestAttribute);
-            Dataset under = split.second().first();
-            Dataset over = split.second().second();
-            subsets.add(under);
-            subsets.add(over);
-            children = new ContinuousChildren(this, split.first(), newAttributes);
-        } else if (dataset.getType() == DISCRETE) {
-            Tuple<List<String>, List<Dataset>> split = dataset.splitByDiscreteAttribute(bestAttribute);
-            subsets = split.second();
-            children = new DiscreteChildren(this, split.first(), newAttributes);
+        if (dataset.isContinuous(bestAttribute)) {
+            Tuple<Dataset, Dataset> split = dataset.splitAtPivot(bestAttribute, bestPivot);
+            subsets.add(split.first());
+            subsets.add(split.second());
+            children = new ContinuousChildren(this, bestPivot, newAttributes);
+        } else {
+            subsets = dataset.splitByDiscreteAttribute(bestAttribute);
+            children = new DiscreteChildren(this, subsets.size(), newAttributes);
         }
         // Split the children nodes
         children.split(subsets);
     }
 
-    public int classify(List<String> example) {
+    public int classify(double[] example) {
         if (this.leaf) {
             return this.getPrediction();
         } else {
@@ -139,6 +135,20 @@ public class TreeNode {
         }
     }
 
+    /**
+     * Classifies a row of the dataset by reading its attribute columns directly instead of copying the example
+     * @param dataset   a dataset with the same columns as the training dataset
+     * @param row       the row of the example in the original dataset (see Dataset.getRowIndex())
+     * @return          the predicted class value
+     */
+    public int classify(Dataset dataset, int row) {
+        if (this.leaf) {
+            return this.getPrediction();
+        } else {
+            return children.predict(dataset, row);
+        }
+    }
+
     /**
      * Used for Random Forest to randomly choose m attributes
      * @param features      the list of attributes to choose from
@@ -147,7 +157,7 @@ public class TreeNode {
      */
     public List<Integer> pickRandomFeatures(List<Integer> features, int m) {
         List<Integer> copy = new ArrayList<>(features);
-        Collections.shuffle(copy);
+        Collections.shuffle(copy, random);
         return m > copy.size() ? copy.subList(0, copy.size()) : copy.subList(0, m);
     }
 
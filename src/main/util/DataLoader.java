@@ -0,0 +1,335 @@
+package main.util;
+
+import main.Dataset;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Loads a data file straight into dictionary-encoded columns. The file is read in large blocks and tokenised byte by
+ * byte (attribute values are separated by commas and/or whitespace, examples by line breaks), and each token of a
+ * loaded column is looked up in the column's dictionary of byte strings as soon as it ends, so no String is created
+ * for a cell and the rows are never materialised.
+ */
+public class DataLoader {
+
+    private static final int BUFFER_SIZE = 1 << 20;     // number of bytes read from the file at a time
+
+    /**
+     * @param path      the data file
+     * @param schema    the type of each column, the target column and how to fill in missing values
+     * @return          the loaded dataset
+     * @throws IOException  if the file can't be read, its lines don't all have the same number of values, or they
+     *                      don't match the schema
+     */
+    public static Dataset load(Path path, Schema schema) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] bytes = buffer.array();
+        byte[] token = new byte[64];
+        int tokenLength = 0;
+        int column = 0;             // the index in the file of the current token's column
+        int line = 1;
+        int numColumns = -1;        // the number of columns in the file (set by the first line)
+        int[] columnOf = null;      // the loaded column of each column in the file (-1 if dropped)
+        ByteDictionary[] dictionaries = new ByteDictionary[0];
+        IntColumn[] codes = new IntColumn[0];
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            boolean endOfFile = false;
+            while (!endOfFile) {
+                buffer.clear();
+                int length = channel.read(buffer);
+                endOfFile = length < 0;
+                // Treat the end of the file as a final line break
+                if (endOfFile) {
+                    bytes[0] = '\n';
+                    length = 1;
+                }
+                for (int i = 0; i < length; i++) {
+                    byte b = bytes[i];
+                    boolean lineBreak = b == '\n' || b == '\r';
+                    if (!lineBreak && !isSeparator(b)) {
+                        if (tokenLength == token.length) token = Arrays.copyOf(token, 2 * token.length);
+                        token[tokenLength++] = b;
+                        continue;
+                    }
+                    if (tokenLength > 0) {
+                        if (numColumns < 0) {
+                            // The columns aren't known until the first line ends, so load all of its values
+                            dictionaries = Arrays.copyOf(dictionaries, column + 1);
+                            codes = Arrays.copyOf(codes, column + 1);
+                            dictionaries[column] = new ByteDictionary();
+                            codes[column] = new IntColumn();
+                            codes[column].add(dictionaries[column].add(token, tokenLength));
+                        } else if (column < numColumns && columnOf[column] >= 0) {
+                            int loaded = columnOf[column];
+                            codes[loaded].add(dictionaries[loaded].add(token, tokenLength));
+                        }
+                        tokenLength = 0;
+                        column++;
+                    }
+                    // Blank lines (and the \n of \r\n) have no values
+                    if (lineBreak && column > 0) {
+                        if (numColumns < 0) {
+                            numColumns = column;
+                            schema.validate(numColumns);
+                            columnOf = project(numColumns, schema);
+                            dictionaries = select(dictionaries, columnOf);
+                            codes = select(codes, columnOf);
+                        } else if (column != numColumns) {
+                            throw new IOException(path + ":" + line + " has " + column + " values instead of " + numColumns);
+                        }
+                        column = 0;
+                    }
+                    if (b == '\n') line++;
+                }
+            }
+        }
+        if (codes.length == 0) throw new IOException(path + " has no data");
+
+        int target = schema.getTarget() < 0 ? codes.length - 1 : columnOf[schema.getTarget()];
+        String[][] uniqueAttributeValues = new String[codes.length][];
+        int[][] columns = new int[codes.length][];
+        int[] types = new int[codes.length];
+        for (int col = 0; col < numColumns; col++) {
+            int loaded = columnOf[col];
+            if (loaded < 0) continue;
+            uniqueAttributeValues[loaded] = dictionaries[loaded].toStrings();
+            columns[loaded] = codes[loaded].toArray();
+            types[loaded] = loaded == target ? Dataset.DISCRETE : Schema.toDatasetType(schema.getColumnType(col));
+            boolean imputed = schema.getMissingValue() != null && schema.getImputation() != Schema.Imputation.NONE;
+            if (types[loaded] == Dataset.CONTINUOUS) {
+                checkNumeric(path, col, uniqueAttributeValues[loaded], imputed ? schema.getMissingValue() : null);
+            }
+            if (imputed) {
+                boolean mean = schema.getImputation() == Schema.Imputation.MEAN && types[loaded] == Dataset.CONTINUOUS;
+                uniqueAttributeValues[loaded] = impute(uniqueAttributeValues[loaded], columns[loaded],
+                        schema.getMissingValue(), mean);
+                // The token is only left in a column that has no other values to impute it from
+                if (types[loaded] == Dataset.CONTINUOUS
+                        && Arrays.asList(uniqueAttributeValues[loaded]).contains(schema.getMissingValue())) {
+                    throw new IOException(path + " has no values to impute numeric column " + col + " from");
+                }
+            }
+        }
+        return new Dataset(uniqueAttributeValues, columns, target, types);
+    }
+
+    /**
+     * @throws IOException  if a value of the column (other than the missing value token, if not null) isn't a number
+     */
+    private static void checkNumeric(Path path, int col, String[] uniqueValues, String missingValue) throws IOException {
+        for (String value : uniqueValues) {
+            if (value.equals(missingValue)) continue;
+            try {
+                Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                throw new IOException(path + " has a non-numeric value in numeric column " + col + ": " + value);
+            }
+        }
+    }
+
+    private static boolean isSeparator(byte b) {
+        return b == ',' || b == ' ' || b == '\t' || b == '\f' || b == 0x0B;
+    }
+
+    /**
+     * @return      the loaded column of each of the file's columns, or -1 for the dropped ones
+     */
+    private static int[] project(int numColumns, Schema schema) {
+        int[] columnOf = new int[numColumns];
+        int loaded = 0;
+        for (int col = 0; col < numColumns; col++) {
+            columnOf[col] = schema.getColumnType(col) == Schema.ColumnType.IGNORED ? -1 : loaded++;
+        }
+        return columnOf;
+    }
+
+    private static <T> T[] select(T[] columns, int[] columnOf) {
+        int loaded = 0;
+        for (int col = 0; col < columnOf.length; col++) {
+            if (columnOf[col] >= 0) columns[loaded++] = columns[col];
+        }
+        return Arrays.copyOf(columns, loaded);
+    }
+
+    /**
+     * Replaces the missing value token in a column by the column's mean (if mean is set) or most frequent value (ties
+     * go to the value that reaches the count first), counting the codes once. The remaining values are renumbered so
+     * that they stay in order of first appearance. A column whose values are all missing is left as it is.
+     * @param uniqueValues      the distinct values of the column (indexed by code, in order of first appearance)
+     * @param codes             the code of every cell of the column, updated in place
+     * @param missingValue      the missing value token
+     * @param mean              whether to replace missing values by the mean of the (numeric) column
+     * @return                  the distinct values of the imputed column
+     */
+    private static String[] impute(String[] uniqueValues, int[] codes, String missingValue, boolean mean) {
+        int missing = Arrays.asList(uniqueValues).indexOf(missingValue);
+        if (missing < 0) return uniqueValues;
+        int replacement = getMostFrequentCode(codes, uniqueValues.length, missing);
+        if (replacement < 0) return uniqueValues;  // every value is missing
+        if (mean) {
+            String value = String.valueOf(getMean(uniqueValues, codes, missing));
+            replacement = Arrays.asList(uniqueValues).indexOf(value);
+            if (replacement < 0) {
+                // The mean is a new value, which takes the missing value token's place
+                String[] imputed = uniqueValues.clone();
+                imputed[missing] = value;
+                return imputed;
+            }
+        }
+
+        // Codes are numbered in order of first appearance, so only the replacement can move (to where the first
+        // missing value was)
+        int[] renumbered = new int[uniqueValues.length];
+        String[] imputed = new String[uniqueValues.length - 1];
+        int next = 0;
+        for (int code = 0; code < uniqueValues.length; code++) {
+            if (code == missing) {
+                if (replacement > missing) {
+                    renumbered[replacement] = next;
+                    imputed[next++] = uniqueValues[replacement];
+                }
+            } else if (code != replacement || replacement < missing) {
+                renumbered[code] = next;
+                imputed[next++] = uniqueValues[code];
+            }
+        }
+        renumbered[missing] = renumbered[replacement];
+        for (int row = 0; row < codes.length; row++) {
+            codes[row] = renumbered[codes[row]];
+        }
+        return imputed;
+    }
+
+    /**
+     * @return      the first code to reach the highest count other than the missing code, or -1 if every code is the
+     *              missing code
+     */
+    private static int getMostFrequentCode(int[] codes, int numValues, int missing) {
+        int[] counts = new int[numValues];
+        int max = 0;
+        int mode = -1;
+        for (int code : codes) {
+            if (code != missing && ++counts[code] > max) {
+                max = counts[code];
+                mode = code;
+            }
+        }
+        return mode;
+    }
+
+    /**
+     * @return      the mean of the numeric column, not counting missing values
+     */
+    private static double getMean(String[] uniqueValues, int[] codes, int missing) {
+        double[] parsed = new double[uniqueValues.length];
+        for (int code = 0; code < uniqueValues.length; code++) {
+            if (code != missing) parsed[code] = Double.parseDouble(uniqueValues[code]);
+        }
+        double sum = 0;
+        int count = 0;
+        for (int code : codes) {
+            if (code == missing) continue;
+            sum += parsed[code];
+            count++;
+        }
+        return sum / count;
+    }
+
+    /**
+     * A growable column of ints
+     */
+    private static class IntColumn {
+        private int[] values = new int[1024];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, 2 * size);
+            values[size++] = value;
+        }
+
+        int[] toArray() { return Arrays.copyOf(values, size); }
+    }
+
+    /**
+     * Numbers distinct byte strings in order of first appearance, using open addressing over a single byte pool
+     */
+    private static class ByteDictionary {
+        private byte[] pool = new byte[1024];   // the bytes of every distinct string, one after the other
+        private int poolSize;
+        private int[] offsets = new int[16];    // where each code's bytes start in pool (with an extra end offset)
+        private int size;
+        private int[] table = new int[32];      // code + 1 of the string hashed to each slot (0 = empty)
+
+        /**
+         * @return      the code of the first length bytes of token, adding them if they haven't been seen before
+         */
+        int add(byte[] token, int length) {
+            int hash = hash(token, length);
+            int mask = table.length - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                int code = table[slot] - 1;
+                if (code < 0) {
+                    table[slot] = insert(token, length) + 1;
+                    if (2 * size > table.length) rehash();
+                    return size - 1;
+                }
+                if (equals(code, token, length)) return code;
+            }
+        }
+
+        private int insert(byte[] token, int length) {
+            if (poolSize + length > pool.length) pool = Arrays.copyOf(pool, Math.max(2 * pool.length, poolSize + length));
+            System.arraycopy(token, 0, pool, poolSize, length);
+            poolSize += length;
+            if (size + 2 > offsets.length) offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+            offsets[++size] = poolSize;
+            return size - 1;
+        }
+
+        private boolean equals(int code, byte[] token, int length) {
+            int start = offsets[code];
+            if (offsets[code + 1] - start != length) return false;
+            for (int i = 0; i < length; i++) {
+                if (pool[start + i] != token[i]) return false;
+            }
+            return true;
+        }
+
+        private void rehash() {
+            table = new int[2 * table.length];
+            int mask = table.length - 1;
+            for (int code = 0; code < size; code++) {
+                int slot = hash(pool, offsets[code], offsets[code + 1]) & mask;
+                while (table[slot] != 0) slot = (slot + 1) & mask;
+                table[slot] = code + 1;
+            }
+        }
+
+        private static int hash(byte[] token, int length) {
+            return hash(token, 0, length);
+        }
+
+        private static int hash(byte[] bytes, int from, int to) {
+            int hash = 0;
+            for (int i = from; i < to; i++) {
+                hash = 31 * hash + bytes[i];
+            }
+            return hash ^ (hash >>> 16);
+        }
+
+        String[] toStrings() {
+            String[] strings = new String[size];
+            for (int code = 0; code < size; code++) {
+                strings[code] = new String(pool, offsets[code], offsets[code + 1] - offsets[code], StandardCharsets.UTF_8);
+            }
+            return strings;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package main.util;
+
+import main.Dataset;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Keeps a binary copy of each loaded dataset next to its data file (with the extension .cache), so that later runs
+ * can memory-map the encoded columns instead of parsing the text again. The cache records the size and modification
+ * time of the data file and the schema it was loaded with, and is rewritten when any of them change.
+ *
+ * The cache file is little endian: a header (magic number, format version, data file size and modification time,
+ * schema, number of rows and columns, and target), each column's type and distinct values (as length-prefixed UTF-8
+ * strings), padding to a multiple of 4 bytes, and then the dictionary codes of every column, one column after the
+ * other.
+ */
+public class DatasetCache {
+
+    private static final int MAGIC = 0x44534331;    // "DSC1"
+    private static final int VERSION = 2;
+    private static final String EXTENSION = ".cache";
+
+    /**
+     * Loads the dataset from its cache if the cache is up to date, or else from the data file (see DataLoader),
+     * caching it for next time
+     * @param source    the data file
+     * @param schema    the schema of the data file
+     * @return          the dataset
+     * @throws IOException  if the data file can't be read or parsed
+     */
+    public static Dataset load(Path source, Schema schema) throws IOException {
+        Path cache = source.resolveSibling(source.getFileName() + EXTENSION);
+        long size = Files.size(source);
+        long modified = Files.getLastModifiedTime(source).toMillis();
+        Dataset dataset = read(cache, size, modified, schema);
+        if (dataset != null) return dataset;
+
+        dataset = DataLoader.load(source, schema);
+        try {
+            write(dataset, cache, size, modified, schema);
+        } catch (IOException e) {
+            System.err.println("Couldn't cache " + source + ": " + e.getMessage());
+        }
+        return dataset;
+    }
+
+    /**
+     * @return      the cached dataset, or null if there is no cache or it is out of date (or unreadable, e.g. truncated
+     *              or corrupt)
+     */
+    private static Dataset read(Path cache, long size, long modified, Schema schema) {
+        if (!Files.exists(cache)) return null;
+        try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != size
+                    || buffer.getLong() != modified || !getString(buffer).equals(schema.toString())) {
+                return null;
+            }
+            int numRows = getCount(buffer, 0);          // checked against the codes below
+            int numColumns = getCount(buffer, 8);       // every column has at least a type and a number of values
+            int target = buffer.getInt();
+            if (target < 0 || target >= numColumns) throw new IOException("Invalid target " + target);
+            int[] types = new int[numColumns];
+            String[][] uniqueAttributeValues = new String[numColumns][];
+            for (int col = 0; col < numColumns; col++) {
+                types[col] = buffer.getInt();
+                if (types[col] != Dataset.DISCRETE && types[col] != Dataset.CONTINUOUS) {
+                    throw new IOException("Invalid type " + types[col] + " of column " + col);
+                }
+                uniqueAttributeValues[col] = new String[getCount(buffer, 4)];
+                for (int code = 0; code < uniqueAttributeValues[col].length; code++) {
+                    uniqueAttributeValues[col][code] = getString(buffer);
+                }
+            }
+            buffer.position(align(buffer.position()));
+            IntBuffer columns = buffer.asIntBuffer();
+            if ((long) numRows * numColumns > columns.remaining()) throw new IOException("Missing codes");
+            int[][] codes = new int[numColumns][numRows];
+            for (int col = 0; col < numColumns; col++) {
+                columns.get(codes[col]);
+                for (int code : codes[col]) {
+                    if (code < 0 || code >= uniqueAttributeValues[col].length) {
+                        throw new IOException("Invalid code " + code + " in column " + col);
+                    }
+                }
+            }
+            return new Dataset(uniqueAttributeValues, codes, target, types);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the cache to a temporary file first and then moves it into place, so a cache is never read half written
+     */
+    private static void write(Dataset dataset, Path cache, long size, long modified, Schema schema) throws IOException {
+        int numColumns = dataset.getNumAttributes();
+        int numRows = dataset.getCodes(0).length;
+        String[][] uniqueAttributeValues = dataset.getUniqueAttributeValues();
+
+        ByteBuffer header = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+        header = putInt(header, MAGIC);
+        header = putInt(header, VERSION);
+        header = putLong(header, size);
+        header = putLong(header, modified);
+        header = putString(header, schema.toString());
+        header = putInt(header, numRows);
+        header = putInt(header, numColumns);
+        header = putInt(header, dataset.getTarget());
+        for (int col = 0; col < numColumns; col++) {
+            header = putInt(header, dataset.isContinuous(col) ? Dataset.CONTINUOUS : Dataset.DISCRETE);
+            header = putInt(header, uniqueAttributeValues[col].length);
+            for (String value : uniqueAttributeValues[col]) {
+                header = putString(header, value);
+            }
+        }
+        int headerSize = align(header.position());
+
+        Path temp = Files.createTempFile(cache.toAbsolutePath().getParent(), cache.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long length = headerSize + 4L * numRows * numColumns;
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                header.flip();
+                buffer.put(header);
+                buffer.position(headerSize);
+                IntBuffer columns = buffer.asIntBuffer();
+                for (int col = 0; col < numColumns; col++) {
+                    columns.put(dataset.getCodes(col));
+                }
+                buffer.force();
+            }
+            Files.move(temp, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static int align(int position) {
+        return (position + 3) & ~3;
+    }
+
+    /**
+     * Reads the number of items of a list that follows in the buffer
+     * @param itemSize      the minimum number of bytes per item
+     * @throws IOException  if the number is negative or there aren't enough bytes left for that many items
+     */
+    private static int getCount(ByteBuffer buffer, int itemSize) throws IOException {
+        int count = buffer.getInt();
+        if (count < 0 || (long) count * itemSize > buffer.remaining()) throw new IOException("Invalid count " + count);
+        return count;
+    }
+
+    private static String getString(ByteBuffer buffer) throws IOException {
+        byte[] bytes = new byte[getCount(buffer, 1)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer = putInt(buffer, bytes.length);
+        buffer = reserve(buffer, bytes.length);
+        return buffer.put(bytes);
+    }
+
+    private static ByteBuffer putInt(ByteBuffer buffer, int value) {
+        return reserve(buffer, 4).putInt(value);
+    }
+
+    private static ByteBuffer putLong(ByteBuffer buffer, long value) {
+        return reserve(buffer, 8).putLong(value);
+    }
+
+    /**
+     * @return      the buffer, or a copy twice as large (or more) if it doesn't have the given number of bytes left
+     */
+    private static ByteBuffer reserve(ByteBuffer buffer, int bytes) {
+        if (buffer.remaining() >= bytes) return buffer;
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(2 * buffer.capacity(), buffer.position() + bytes));
+        larger.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.flip();
+        return larger.put(buffer);
+    }
+}
@@ -0,0 +1,143 @@
+package main.util;
+
+import main.Dataset;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Describes how to load a data file: the type of each of its columns (categorical, numeric, or ignored, i.e. not
+ * loaded), which column is the target, which token marks a missing value and how missing values are filled in.
+ *
+ * A data file's schema is read from a sidecar properties file with the same name plus .schema, e.g. for ecoli.data:
+ * <pre>
+ * columns = ignored, numeric*2, ignored*2, numeric*3, categorical
+ * target = 8
+ * missing = ?
+ * impute = mode
+ * </pre>
+ * where type*n stands for n columns of that type. Every key is optional: by default every column is categorical, the
+ * target is the last column that isn't ignored, and there are no missing values.
+ */
+public class Schema {
+
+    public enum ColumnType { CATEGORICAL, NUMERIC, IGNORED }
+
+    public enum Imputation {
+        NONE,   // leave the missing value token as a value of its own
+        MODE,   // replace it by the most frequent value of its column
+        MEAN    // replace it by the mean of its (numeric) column, or the most frequent value of a categorical column
+    }
+
+    private static final String EXTENSION = ".schema";
+
+    private final ColumnType[] columns;     // the type of each column of the file (null = all categorical)
+    private final int target;               // the column of the file that is the target (-1 = the last loaded one)
+    private final String missingValue;      // the token that marks a missing value (null = none)
+    private final Imputation imputation;    // how missing values are filled in
+
+    public Schema(ColumnType[] columns, int target, String missingValue, Imputation imputation) {
+        this.columns = columns;
+        this.target = target;
+        this.missingValue = missingValue;
+        this.imputation = imputation;
+    }
+
+    /**
+     * @return      the schema of a file whose columns are all categorical, with the target last
+     */
+    public static Schema categorical() {
+        return new Schema(null, -1, null, Imputation.NONE);
+    }
+
+    /**
+     * @param col       a column of the file
+     * @return          the type of the column
+     */
+    public ColumnType getColumnType(int col) {
+        return columns == null ? ColumnType.CATEGORICAL : columns[col];
+    }
+
+    /**
+     * @param numColumns    the number of columns in the file
+     * @throws IOException  if the schema describes a different number of columns, or the target is ignored
+     */
+    public void validate(int numColumns) throws IOException {
+        if (columns != null && columns.length != numColumns) {
+            throw new IOException("The schema describes " + columns.length + " columns, but the file has " + numColumns);
+        }
+        if (target >= numColumns || (target >= 0 && getColumnType(target) == ColumnType.IGNORED)) {
+            throw new IOException("The target column " + target + " isn't loaded");
+        }
+    }
+
+    /**
+     * @return      the column of the file that is the target, or -1 for the last column that isn't ignored
+     */
+    public int getTarget() { return target; }
+
+    public String getMissingValue() { return missingValue; }
+
+    public Imputation getImputation() { return imputation; }
+
+    @Override
+    public String toString() {
+        return "Schema(columns:" + Arrays.toString(columns) + ", target:" + target + ", missing:" + missingValue
+                + ", impute:" + imputation + ")";
+    }
+
+    /**
+     * Reads the schema of a data file from its sidecar file (see above)
+     * @param dataFile      the data file
+     * @return              the schema, or categorical() if the data file has no sidecar file
+     * @throws IOException  if the sidecar file can't be read or has an invalid value
+     */
+    public static Schema forDataFile(Path dataFile) throws IOException {
+        Path schemaFile = dataFile.resolveSibling(dataFile.getFileName() + EXTENSION);
+        if (!Files.exists(schemaFile)) return categorical();
+
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(schemaFile, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        try {
+            String columns = properties.getProperty("columns");
+            String target = properties.getProperty("target");
+            String missingValue = properties.getProperty("missing");
+            String imputation = properties.getProperty("impute", Imputation.NONE.name());
+            return new Schema(columns == null ? null : parseColumns(columns),
+                    target == null ? -1 : Integer.parseInt(target.trim()),
+                    missingValue == null ? null : missingValue.trim(),
+                    Imputation.valueOf(imputation.trim().toUpperCase()));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid schema " + schemaFile + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static ColumnType[] parseColumns(String columns) {
+        List<ColumnType> types = new ArrayList<>();
+        for (String column : columns.split(",")) {
+            String[] typeAndCount = column.trim().split("\\*");
+            ColumnType type = ColumnType.valueOf(typeAndCount[0].trim().toUpperCase());
+            int count = typeAndCount.length > 1 ? Integer.parseInt(typeAndCount[1].trim()) : 1;
+            for (int i = 0; i < count; i++) {
+                types.add(type);
+            }
+        }
+        return types.toArray(new ColumnType[0]);
+    }
+
+    /**
+     * @return      Dataset.CONTINUOUS for numeric columns, or else Dataset.DISCRETE
+     */
+    static int toDatasetType(ColumnType type) {
+        return type == ColumnType.NUMERIC ? Dataset.CONTINUOUS : Dataset.DISCRETE;
+    }
+}
@@ -1,98 +1,66 @@
 package main.util;
 
 import java.util.*;
-
-import static java.lang.Math.random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 public class Util {
 
     /**
-     * Returns a HashMap that maps an element in the given list to the number of the times that it
-     * occurs in the list, e.g. {"red","blue","red","yellow","blue","blue"} would return
-     * "red" -> 2, "yellow" -> 1, "blue" -> 3
+     * Returns the most frequently occurring value in the given array of small non-negative ints (e.g. class values).
+     * Ties go to the value that occurs first.
      *
-     * @param list      the list of elements
-     * @return          a frequency map of the elements in the list
+     * @param values        the values
+     * @param length        the number of values to count, from the start of values
+     * @param numValues     the number of possible values (i.e. every value is < numValues)
+     * @param counts        scratch array of length numValues
+     * @return              the most frequent value, or -1 if length is 0
      */
-    public static Map<String, Integer> getFrequencyMap(List<String> list) {
-        Map<String, Integer> map = new HashMap<>();
-
-        for (String element : list) {
-            Integer count = map.get(element);
-            if (count == null) {
-                count = 1;
-                map.put(element, count);
-            } else {
-                count++;
-                map.replace(element, count);
-            }
+    public static int getMostFrequentElement(int[] values, int length, int numValues, int[] counts) {
+        if (length == 0) return -1;
+        Arrays.fill(counts, 0, numValues, 0);
+        int max = values[0];
+        for (int i = 0; i < length; i++) {
+            counts[values[i]]++;
         }
-
-        return map;
-    }
-
-    /**
-     * Returns the most frequently occurring element in the given list
-     * @param list      the list of elements
-     * @param <T>       the type of element in the list (e.g. String, Integer)
-     * @return          the most frequent element in the list
-     */
-    public static <T> T getMostFrequentElement(List<T> list) {
-        Map<T, Integer> map = new LinkedHashMap<>();
-
-        for (T t : list) {
-            Integer val = map.get(t);
-            if (val == null) {
-                map.put(t, 1);
-            } else {
-                map.replace(t, val + 1);
-            }
+        // Scan in order of occurrence so the first value to occur wins ties
+        for (int i = 0; i < length; i++) {
+            if (counts[values[i]] > counts[max]) max = values[i];
         }
-
-        Map.Entry<T, Integer> max = null;
-
-        for (Map.Entry<T, Integer> e : map.entrySet()) {
-            if (max == null|| e.getValue() > max.getValue())
-                max = e;
-        }
-        return max.getKey();
+        return max;
     }
 
     /**
-     * Used for bootstrapping (i.e. sampling with replacement) by generating indices
-     * from the original dataset between 0 and numberOfIndices that are determined in
-     * part by randomness (i.e. random()) and in part by the weights assigned to each index.
+     * Runs the tasks on the executor (or one after the other on the calling thread if executor is null) and
+     * waits for their results
      *
-     * @param weights           the weights assigned to each index. Higher weights increase the
-     *                          selection of those indices
-     * @param numberOfIndices   the total number of indices to generate
-     * @return                  the list of generated indices
+     * @param executor      the executor, or null
+     * @param tasks         the tasks to run
+     * @param <T>           the type of result
+     * @return              the results of the tasks, in the same order as tasks
      */
-    public static List<Integer> generateIndices(List<Double> weights, int numberOfIndices) {
-        List<Double> probabilities = Arrays.asList(new Double[weights.size()]);
-
-        // Normalize weights
-        double sum = 0.0;
-        for (Double weight : weights) {
-            sum += weight;
-        }
-        for (int i = 0; i < weights.size(); i++) {
-            probabilities.set(i, weights.get(i)/sum);
-        }
-
-        // Sample indices with replacement based on cdf given by weights (i.e. probabilities)
-        List<Integer> indices = Arrays.asList(new Integer[numberOfIndices]);
-        for (int i = 0; i < numberOfIndices; i++) {
-            double rand = random();
-            double cumulativeProbability = 0.0;
-            for (int j = 0; j < probabilities.size(); j++) {
-                cumulativeProbability += probabilities.get(j);
-                if (rand <= cumulativeProbability) {
-                    indices.set(i, j);
-                    break;
+    public static <T> List<T> invokeAll(ExecutorService executor, List<? extends Callable<T>> tasks) {
+        List<T> results = new ArrayList<>();
+        try {
+            if (executor == null) {
+                for (Callable<T> task : tasks) {
+                    results.add(task.call());
+                }
+            } else {
+                for (Future<T> future : executor.invokeAll(tasks)) {
+                    results.add(future.get());
                 }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for tasks", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error while running task", e.getCause());
+        } catch (Exception e) {
+            throw new RuntimeException("Error while running task", e);
         }
-        return indices;
+        return results;
     }
 }